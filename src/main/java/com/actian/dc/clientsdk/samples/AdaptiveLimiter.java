@@ -0,0 +1,237 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.JobListener;
+import com.pervasive.di.client.sdk.JobProgress;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Limits the number of jobs in flight, adapting the limit to the engine's
+ * capacity with additive increase / multiplicative decrease, as TCP
+ * congestion control does.  The signal is the time each job spends queued
+ * in the engine, from QUEUED to RUNNING:
+ * <ul>
+ * <li>while the queue delay stays within <code>limit.tolerance</code> times
+ * the lowest recently observed delay, the limit grows by about one job per
+ * limit's worth of completed jobs</li>
+ * <li>when the queue delay rises beyond that, or jobs fail at a rate above
+ * <code>limit.maxErrorRate</code>, the limit is cut by
+ * <code>limit.backoff</code>, at most once per limit's worth of jobs</li>
+ * </ul>
+ * The limit stays between <code>limit.min</code> and <code>limit.max</code>
+ * and starts at <code>limit.initial</code>.
+ */
+public class AdaptiveLimiter
+{
+    private static final Logger logger = LogUtil.getLogger(AdaptiveLimiter.class);
+
+    private static final int BASELINE_WINDOW = 100;
+    private static final long DELAY_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final double ERROR_RATE_WEIGHT = 0.1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+    private final double maxErrorRate;
+
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private int samplesSinceDecrease;
+    private double errorRate;
+
+    /**
+     * @param initial the starting limit
+     * @param min the lowest the limit may fall to
+     * @param max the highest the limit may grow to
+     * @param tolerance how many times the baseline queue delay is tolerated before backing off, at least 1
+     * @param backoff the factor the limit is multiplied by when backing off, between 0 and 1
+     * @param maxErrorRate the smoothed failure rate above which failures cause a back off
+     * @throws IllegalArgumentException if the limits or factors are out of range
+     */
+    public AdaptiveLimiter(int initial, int min, int max, double tolerance, double backoff, double maxErrorRate) {
+        if (min < 1 || max < min || initial < min || initial > max)
+            throw new IllegalArgumentException("Invalid concurrency limits: initial=" + initial + " min=" + min + " max=" + max);
+        if (tolerance < 1 || backoff <= 0 || backoff >= 1)
+            throw new IllegalArgumentException("Invalid limit factors: tolerance=" + tolerance + " backoff=" + backoff);
+        if (!(maxErrorRate > 0 && maxErrorRate <= 1))
+            throw new IllegalArgumentException("Invalid maximum error rate: " + maxErrorRate);
+        this.limit = initial;
+        this.minLimit = min;
+        this.maxLimit = max;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.maxErrorRate = maxErrorRate;
+    }
+
+    /**
+     * @param config the samples configuration
+     * @return a limiter configured by the <code>limit.*</code> settings
+     */
+    static AdaptiveLimiter fromConfig(SamplesConfig config) {
+        return new AdaptiveLimiter(
+                config.getInt("limit.initial", 4),
+                config.getInt("limit.min", 1),
+                config.getInt("limit.max", 64),
+                Double.parseDouble(config.getString("limit.tolerance", "2.0")),
+                Double.parseDouble(config.getString("limit.backoff", "0.9")),
+                Double.parseDouble(config.getString("limit.maxErrorRate", "0.1")));
+    }
+
+    /**
+     * Submit a task once the number of jobs in flight is below the limit,
+     * waiting for a slot if necessary.  The slot is given back when the job
+     * ends or is cancelled.
+     * @param cxnBuilder builder the connection was created with, may be null
+     * @param cxn connection used to submit the task
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @param delegate listener which also receives the job's progress events, may be null
+     * @return JobHandle for the submitted job
+     * @throws SDKException if the task can't be submitted
+     * @throws InterruptedException if interrupted while waiting for a slot
+     */
+    public JobHandle submit(ConnectionBuilder cxnBuilder, ExecutionConnection cxn, Task task, JobListener delegate)
+            throws SDKException, InterruptedException {
+        acquire();
+        QueueDelayListener delayListener = new QueueDelayListener(delegate);
+        JobHandle handle;
+        try {
+            handle = JobHandle.submit(cxnBuilder, cxn, task, delayListener);
+        } catch (SDKException | RuntimeException e) {
+            finished(-1, false);
+            throw e;
+        }
+        handle.completion().whenComplete((status, e) ->
+                finished(delayListener.getQueueDelayNanos(), status == JobStatusCode.FINISHED_OK));
+        return handle;
+    }
+
+    /**
+     * @return the current in-flight job limit
+     */
+    public synchronized int getLimit() {
+        return (int)limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Wait for a slot below the limit and take it
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int)limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Give back the slot of a job which ended and adjust the limit
+     * @param queueDelayNanos time the job spent queued, or -1 if unknown
+     * @param ok true if the job succeeded
+     */
+    synchronized void finished(long queueDelayNanos, boolean ok) {
+        inFlight--;
+        samplesSinceDecrease++;
+        errorRate += ERROR_RATE_WEIGHT * ((ok ? 0 : 1) - errorRate);
+        if (!ok && errorRate > maxErrorRate) {
+            decrease("error rate " + Math.round(errorRate * 100) + "%");
+        }
+        else if (queueDelayNanos >= 0) {
+            sampleDelay(queueDelayNanos);
+        }
+        notifyAll();
+    }
+
+    private void sampleDelay(long delayNanos) {
+        // the baseline is the lowest delay seen in the previous window and so
+        // far in this one; at the end of each window it is reset to that
+        // window's lowest, so it follows the engine if its uncongested queue
+        // delay rises, and drops as soon as a lower delay is seen
+        baselineNanos = Math.min(baselineNanos, delayNanos);
+        windowMinNanos = Math.min(windowMinNanos, delayNanos);
+        if (++windowSamples >= BASELINE_WINDOW) {
+            baselineNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        if (delayNanos > baselineNanos * tolerance + DELAY_SLACK_NANOS) {
+            decrease("queue delay " + TimeUnit.NANOSECONDS.toMillis(delayNanos) + "ms");
+        }
+        else if (inFlight + 1 >= limit / 2) {
+            // only grow while the limit is being used
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private void decrease(String reason) {
+        if (samplesSinceDecrease < limit)
+            return;
+        samplesSinceDecrease = 0;
+        limit = Math.max(minLimit, limit * backoff);
+        logger.log(Level.FINE, "Concurrency limit reduced to {0} ({1})", new Object[]{(int)limit, reason});
+    }
+
+    /**
+     * Measures the time from the job being queued to it starting to run
+     */
+    private static class QueueDelayListener implements JobListener
+    {
+        private final JobListener delegate;
+        private final long submitNanos = System.nanoTime();
+        private volatile long queuedNanos;
+        private volatile long runningNanos;
+
+        QueueDelayListener(JobListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void jobProgress(JobProgress progress) {
+            JobStatusCode status = progress.getJobStatusCode();
+            if (status == JobStatusCode.QUEUED && queuedNanos == 0)
+                queuedNanos = System.nanoTime();
+            else if (status == JobStatusCode.RUNNING && runningNanos == 0)
+                runningNanos = System.nanoTime();
+            if (delegate != null)
+                delegate.jobProgress(progress);
+        }
+
+        /**
+         * @return the time spent queued, or -1 if the job never started running
+         */
+        long getQueueDelayNanos() {
+            long running = runningNanos;
+            if (running == 0)
+                return -1;
+            long queued = queuedNanos;
+            return running - (queued == 0 ? submitNanos : queued);
+        }
+    }
+}
@@ -16,7 +16,6 @@
 package com.actian.dc.clientsdk.samples;
 
 import com.pervasive.di.client.sdk.ExecutionConnection;
-import com.pervasive.di.client.sdk.Job;
 import com.pervasive.di.client.sdk.SDKException;
 import com.pervasive.di.client.sdk.Task;
 import java.util.logging.Level;
@@ -26,9 +25,11 @@ import java.util.logging.Level;
  */
 public class AsyncExecutionSample extends ExecutionConnectionUser
 {
+    private static final String RTC_NAME = "Samples.map.rtc";
+
     /**
-     * Execute a job asynchronously and determine completion by polling a JobListener
-     * instance every 3 seconds for completion
+     * Execute a job asynchronously and determine completion by polling its
+     * JobHandle every 3 seconds
      * @param cxn ExecutionConnection instance 
      * @return true if the job completed successfully, false otherwise
      * @throws SDKException if an unexpected error occurs
@@ -37,24 +38,26 @@ public class AsyncExecutionSample extends ExecutionConnectionUser
     public boolean useConnection(ExecutionConnection cxn) throws SDKException
     {
         // Create a new Task and feed it the RTC
-        Task task = SamplesRunner.sampleTask("Samples.map.rtc");
+        Task task = SamplesRunner.sampleTask(RTC_NAME);
 
         // Execute the task asynchronously.
-        // The SimpleJobListener will set the finished boolean to true when the job is done.
-        SimpleJobListener listener = new SimpleJobListener(LOGGER);
+        // The handle is done when the job has ended; the SimpleJobListener logs its progress.
         LOGGER.log(Level.INFO, "Submitting task {0}", task.getTaskName());
-        Job job = cxn.submit(task, listener);
+        JobHandle handle = JobHandle.submit(getConnectionBuilder(), cxn, task,
+                SamplesRunner.sampleRuntimeConfig(RTC_NAME), new SimpleJobListener(LOGGER));
 
         try {
-            // Wait until the listener says it's ok to proceed
-            while (!listener.isFinished())
+            // Wait until the handle says it's ok to proceed
+            while (!handle.isDone())
                 Thread.sleep(3000);
         } catch(InterruptedException e) {
-            LOGGER.severe(e.getMessage());
+            Thread.currentThread().interrupt();
+            LOGGER.severe("Interrupted while waiting for the job to finish");
+            handle.cancel();
             return false;   
         }
         
         // Report results
-        return reportResult(job, cxn);       
+        return reportResult(handle.getJob(), cxn, task, SamplesRunner.sampleRuntimeConfig(RTC_NAME));       
     }
 }
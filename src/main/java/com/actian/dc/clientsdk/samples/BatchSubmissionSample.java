@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Submits a batch of tasks over two connections with the BatchSubmitter,
+ * sharing a single listener between all of the jobs, and waits for the whole
+ * batch to finish.  Every task runs the sample map with a target file of its
+ * own, numbered by its position in the batch, as jobs on the two connections
+ * run at the same time.  The sample gives up if the batch makes no progress
+ * for a minute.
+ */
+public class BatchSubmissionSample implements ConnectionUser
+{
+    private static final Logger LOGGER = LogUtil.getLogger(BatchSubmissionSample.class);
+
+    static final int BATCH_SIZE = 25;
+    static final int CONNECTIONS = 2;
+    static final long INACTIVITY_SECONDS = 60;
+    static final String RTC_NAME = "Samples.map.rtc";
+
+    @Override
+    public boolean supportsLocal() {
+        return true;
+    }
+
+    /**
+     * @see com.actian.dc.clientsdk.samples.ConnectionUser#useConnection(com.actian.dc.clientsdk.samples.ConnectionBuilder) 
+     */
+    @Override
+    public boolean useConnection(ConnectionBuilder cxnBuilder) {
+        List<ExecutionConnection> connections = new ArrayList<>();
+        BatchSubmitter submitter = null;
+        try {
+            for (int i = 0; i < CONNECTIONS; i++) {
+                connections.add(cxnBuilder.createExecutionConnection(SamplesRunner.SAMPLE_PACKAGE_NAME));
+            }
+            File targets = new File(SamplesRunner.SAMPLE_DATA_MACRO_VALUE, "batch");
+            targets.mkdirs();
+            List<Task> tasks = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                File target = new File(targets, "invoices_trg_" + i + ".txt");
+                tasks.add(SamplesRunner.sampleTask(RTC_NAME, MacroSet.of(
+                        Collections.singletonMap(SamplesRunner.SAMPLE_TARGET_MACRO_NAME, target.getPath()))));
+            }
+
+            submitter = new BatchSubmitter(cxnBuilder, connections);
+            BatchSubmitter.BatchHandle batch = submitter.submitAll(tasks, SamplesRunner.sampleRuntimeConfig(RTC_NAME));
+            int progress = 0;
+            long lastProgress = System.nanoTime();
+            while (!batch.await(5, TimeUnit.SECONDS)) {
+                LOGGER.log(Level.INFO, "Batch progress: {0} submitted, {1} succeeded, {2} failed of {3}",
+                        new Object[]{batch.getSubmitted(), batch.getSucceeded(), batch.getFailed(), batch.size()});
+                int current = batch.getSubmitted() + batch.getSucceeded() + batch.getFailed();
+                if (current != progress) {
+                    progress = current;
+                    lastProgress = System.nanoTime();
+                }
+                else if (System.nanoTime() - lastProgress >= TimeUnit.SECONDS.toNanos(INACTIVITY_SECONDS)) {
+                    timedOut(batch);
+                    return false;
+                }
+            }
+            LOGGER.log(Level.INFO, "Batch finished: {0} succeeded, {1} failed",
+                    new Object[]{batch.getSucceeded(), batch.getFailed()});
+            return batch.getFailed() == 0;
+        }
+        catch (SDKException e) {
+            LOGGER.severe(e.getMessage());
+            return false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.severe("Interrupted while waiting for the batch");
+            return false;
+        }
+        finally {
+            if (submitter != null)
+                submitter.shutdown();
+            for (ExecutionConnection cxn : connections) {
+                cxnBuilder.release(cxn);
+            }
+        }
+    }
+
+    private static void timedOut(BatchSubmitter.BatchHandle batch) {
+        LOGGER.log(Level.SEVERE, "TIMEOUT: no batch progress for {0} seconds", INACTIVITY_SECONDS);
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.getFutures().get(i).isDone())
+                continue;
+            Job job = batch.getJob(i);
+            if (job == null)
+                LOGGER.log(Level.INFO, "TIMEOUT: Task {0} was not submitted", i);
+            else
+                LOGGER.log(Level.INFO, "TIMEOUT: Job {0} did not finish", job.getJobId());
+        }
+    }
+}
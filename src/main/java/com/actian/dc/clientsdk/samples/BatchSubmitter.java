@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobListener;
+import com.pervasive.di.client.sdk.JobProgress;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Submits large numbers of small tasks with low per-task overhead.  All jobs
+ * share a single listener which routes progress events to the right job by
+ * job ID, and the tasks are spread across the connections.  Each connection
+ * has one submitting thread which makes one blocking submit call at a time,
+ * so submissions on different connections overlap but those on a single
+ * connection are not pipelined; a task doesn't wait for earlier jobs to
+ * finish, only for their submit calls to return.
+ */
+public class BatchSubmitter
+{
+    private static final Logger logger = LogUtil.getLogger(BatchSubmitter.class);
+
+    private final ConnectionBuilder cxnBuilder;
+    private final List<ExecutionConnection> connections;
+    private final ExecutorService submitters;
+    private final DemuxListener listener = new DemuxListener(JobTracer.get());
+
+    /**
+     * @param cxnBuilder builder the connections were created with, which
+     * counts the jobs in flight on each engine
+     * @param connections connections used to submit the tasks.  The caller
+     * remains responsible for releasing them.
+     */
+    public BatchSubmitter(ConnectionBuilder cxnBuilder, List<ExecutionConnection> connections) {
+        if (connections.isEmpty())
+            throw new IllegalArgumentException("At least one connection is required");
+        this.cxnBuilder = cxnBuilder;
+        this.connections = new ArrayList<>(connections);
+        this.submitters = Executors.newFixedThreadPool(connections.size(), r -> {
+            Thread t = new Thread(r, "batch-submitter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Submit a batch of tasks.  Returns immediately; use the returned handle
+     * to follow the progress of the batch.
+     * @param tasks the tasks to submit
+     * @return BatchHandle for the batch
+     */
+    public BatchHandle submitAll(Collection<Task> tasks) {
+        return submitAll(tasks, null);
+    }
+
+    /**
+     * Submit a batch of tasks built from one runtime configuration.  Returns
+     * immediately; use the returned handle to follow the progress of the batch.
+     * @param tasks the tasks to submit
+     * @param rtcFile runtime configuration the tasks were built from, named
+     * on their trace spans, may be null
+     * @return BatchHandle for the batch
+     */
+    public BatchHandle submitAll(Collection<Task> tasks, File rtcFile) {
+        List<Task> list = new ArrayList<>(tasks);
+        BatchHandle handle = new BatchHandle(list.size());
+        // Each connection gets its own submitting thread and an interleaved
+        // share of the tasks, so submissions on different connections overlap
+        int lanes = connections.size();
+        for (int lane = 0; lane < lanes; lane++) {
+            ExecutionConnection cxn = connections.get(lane);
+            int first = lane;
+            submitters.execute(() -> {
+                for (int i = first; i < list.size(); i += lanes) {
+                    submit(cxn, list.get(i), rtcFile, i, handle);
+                }
+            });
+        }
+        return handle;
+    }
+
+    /**
+     * Stop the submitting threads.  Jobs already submitted keep running.
+     */
+    public void shutdown() {
+        submitters.shutdownNow();
+    }
+
+    private void submit(ExecutionConnection cxn, Task task, File rtcFile, int index, BatchHandle handle) {
+        CompletableFuture<JobStatusCode> future = handle.futures.get(index);
+        cxnBuilder.jobSubmitted(cxn);
+        future.whenComplete((status, error) -> cxnBuilder.jobEnded(cxn));
+        try {
+            // traced through the shared listener, so no listener is created per job
+            JobSpan span = listener.tracer.start(task, rtcFile);
+            Job job = cxn.submit(task, listener);
+            handle.jobs.set(index, job);
+            handle.submitted.incrementAndGet();
+            listener.register(job.getJobId(), future, span);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Unable to submit task {0}: {1}", new Object[]{task.getTaskName(), e.getMessage()});
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Single listener shared by all jobs, which also records the spans of
+     * traced jobs.  Progress events can arrive before the submit call that
+     * created the job has returned, so terminal statuses for job IDs that are
+     * not registered yet are held until they are; earlier statuses of such
+     * jobs are not traced.
+     */
+    private static class DemuxListener implements JobListener
+    {
+        private final JobTracer tracer;
+        private final Map<String, CompletableFuture<JobStatusCode>> pending = new ConcurrentHashMap<>();
+        private final Map<String, JobSpan> spans = new ConcurrentHashMap<>();
+        private final Map<String, JobStatusCode> early = new ConcurrentHashMap<>();
+
+        DemuxListener(JobTracer tracer) {
+            this.tracer = tracer;
+        }
+
+        void register(String jobId, CompletableFuture<JobStatusCode> future, JobSpan span) {
+            if (span != null)
+                spans.put(jobId, span);
+            pending.put(jobId, future);
+            JobStatusCode status = early.remove(jobId);
+            if (status != null)
+                complete(jobId, status);
+        }
+
+        @Override
+        public void jobProgress(JobProgress progress) {
+            JobStatusCode status = progress.getJobStatusCode();
+            String jobId = progress.getJobId();
+            if (status != JobStatusCode.FINISHED_OK && status != JobStatusCode.FINISHED_ERROR
+                    && status != JobStatusCode.ABORTED) {
+                JobSpan span = spans.get(jobId);
+                if (span != null)
+                    tracer.record(span, jobId, status);
+                return;
+            }
+            if (pending.containsKey(jobId)) {
+                complete(jobId, status);
+            }
+            else {
+                early.put(jobId, status);
+                // close the race with a register() that ran in between
+                if (pending.containsKey(jobId) && early.remove(jobId) != null)
+                    complete(jobId, status);
+            }
+        }
+
+        private void complete(String jobId, JobStatusCode status) {
+            JobSpan span = spans.remove(jobId);
+            if (span != null)
+                tracer.record(span, jobId, status);
+            CompletableFuture<JobStatusCode> future = pending.remove(jobId);
+            if (future != null)
+                future.complete(status);
+        }
+    }
+
+    /**
+     * Progress of a submitted batch, with a future per task
+     */
+    public static class BatchHandle
+    {
+        private final List<CompletableFuture<JobStatusCode>> futures;
+        private final AtomicReferenceArray<Job> jobs;
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final CompletableFuture<Void> all;
+
+        BatchHandle(int size) {
+            List<CompletableFuture<JobStatusCode>> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                CompletableFuture<JobStatusCode> future = new CompletableFuture<>();
+                future.whenComplete((status, error) -> {
+                    if (status == JobStatusCode.FINISHED_OK)
+                        succeeded.incrementAndGet();
+                    else
+                        failed.incrementAndGet();
+                });
+                list.add(future);
+            }
+            this.futures = Collections.unmodifiableList(list);
+            this.jobs = new AtomicReferenceArray<>(size);
+            this.all = CompletableFuture.allOf(list.toArray(new CompletableFuture<?>[0]));
+        }
+
+        /**
+         * @return one future per task, in submission order, completed with the
+         * job's final status or exceptionally if the task couldn't be submitted
+         */
+        public List<CompletableFuture<JobStatusCode>> getFutures() {
+            return futures;
+        }
+
+        /**
+         * @param index position of the task in the batch
+         * @return the job for the task, or null if it has not been submitted
+         */
+        public Job getJob(int index) {
+            return jobs.get(index);
+        }
+
+        public int size() {
+            return futures.size();
+        }
+
+        public int getSubmitted() {
+            return submitted.get();
+        }
+
+        public int getSucceeded() {
+            return succeeded.get();
+        }
+
+        /**
+         * @return jobs which ended unsuccessfully plus tasks which couldn't be submitted
+         */
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public boolean isDone() {
+            return succeeded.get() + failed.get() == futures.size();
+        }
+
+        /**
+         * Wait for every job in the batch to end
+         * @param timeout maximum time to wait
+         * @param unit unit of the timeout
+         * @return true if all jobs ended, false if the timeout elapsed first
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            try {
+                all.get(timeout, unit);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                // failed submissions are counted, not thrown
+            }
+            return true;
+        }
+    }
+}
@@ -18,40 +18,135 @@ package com.actian.dc.clientsdk.samples;
 import com.pervasive.di.client.sdk.ConnectionFactory;
 import com.pervasive.di.client.sdk.ConnectionType;
 import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobListener;
+import com.pervasive.di.client.sdk.JobProgress;
+import com.pervasive.di.client.sdk.JobStatusCode;
 import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
 import com.pervasive.cosmos.Config;
 import java.io.File;
-import java.util.Enumeration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Convenience class used to wrap boilerplate code involved with the building of
  * an ExecutionConnection object.
+ * <p>
+ * The builder is driven by a SamplesConfig.  One or more local engine instances
+ * may be configured, each with its own listener port and work directory, and
+ * connections are spread across them using the configured RoutingPolicy:
+ * <pre>
+ * connection.type=LOCAL
+ * engine.count=2
+ * engine.routing=LEAST_OUTSTANDING
+ * engine.0.port=4443
+ * engine.0.workDirectory=target/work/engine0
+ * engine.1.port=4444
+ * engine.1.workDirectory=target/work/engine1
+ * </pre>
+ * Unset engine values default to the values used for a single local engine.
+ * Connections should be created with the name of the package they will run,
+ * which PACKAGE_HASH routes on, and jobs submitted through submit() so that
+ * LEAST_OUTSTANDING sees the jobs in flight on each engine.
+ * <p>
+ * Engine work directories are created below <code>work.root</code>, which may
+ * be placed on a tmpfs mount such as <code>/dev/shm</code>.  Setting
+ * <code>work.isolation=CONNECTION</code> gives every connection its own work
+ * subdirectory; these are removed by a background reaper once the connection
+ * is released, subject to <code>work.maxAgeMinutes</code> and
+ * <code>work.maxBytes</code>.
+ * <p>
+ * Connections marked with keepOpen() are not disconnected when released, but
+ * kept idle and handed out again by the next createExecutionConnection() call
+ * with the same routing key.  This is how the connections opened by a WarmUp
+ * are reused by the code that runs after it.
  */
 public class ConnectionBuilder
 {
     private static final Logger logger = LogUtil.getLogger(ConnectionBuilder.class);
 
-    private static final ConnectionType CONNECTION_TYPE = ConnectionType.LOCAL;
+    private static final ConnectionType DEFAULT_CONNECTION_TYPE = ConnectionType.LOCAL;
 
-    // Configuration for local execution
+    // Default configuration for local execution
 
-    private static final String INSTALL_PATH = Config.getInstance().getProperty("InstallPath");
-    private static final String INI_FILE_PATH = Config.getInstance().getIniFile().getAbsolutePath();
-    private static final String LISTENER_PORT = "4443";
-    private static final String WORKING_DIRECTORY = "target/work";
+    private static final int LISTENER_PORT = 4443;
     private static final String PACKAGE_LOCATION = SamplesRunner.ARTIFACTS_PATH;
 
-    private final ConnectionFactory factory;
+    /**
+     * Holder for the defaults read from the DataConnect INI file.  Reading them
+     * requires loading the INI file, so it is deferred until an engine without
+     * an explicit install path or INI file is configured.
+     */
+    private static class IniDefaults
+    {
+        static final String INSTALL_PATH;
+        static final String INI_FILE_PATH;
+
+        static {
+            long start = System.nanoTime();
+            Config config = Config.getInstance();
+            INSTALL_PATH = config.getProperty("InstallPath");
+            INI_FILE_PATH = config.getIniFile().getAbsolutePath();
+            StartupTimer.record("ini", System.nanoTime() - start);
+        }
+    }
+
+    private final ConnectionType connectionType;
+    private final WorkDirectoryReaper reaper;
+    private final EngineRouter router;
+    private final Map<ExecutionConnection, EngineEndpoint> inUse =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Map<ExecutionConnection, String> reusable = new IdentityHashMap<>();
+    private final Map<String, Deque<ExecutionConnection>> idle = new HashMap<>();
 
     public ConnectionBuilder() {
-        factory = createFactory();
+        this(SamplesConfig.load());
+    }
+
+    public ConnectionBuilder(SamplesConfig config) {
+        connectionType = ConnectionType.valueOf(
+                config.getString("connection.type", DEFAULT_CONNECTION_TYPE.toString()).toUpperCase());
+        if (connectionType != ConnectionType.LOCAL)
+            throw new IllegalStateException(
+                    "ConnectionFactory can't be created with non-local connection type.");
+        RoutingPolicy policy = RoutingPolicy.valueOf(
+                config.getString("engine.routing", RoutingPolicy.ROUND_ROBIN.toString()).toUpperCase());
+        WorkIsolation isolation = WorkIsolation.valueOf(
+                config.getString("work.isolation", WorkIsolation.ENGINE.toString()).toUpperCase());
+        if (isolation == WorkIsolation.CONNECTION && config.getBoolean("work.reaper.enabled", true)) {
+            reaper = new WorkDirectoryReaper(
+                    TimeUnit.MINUTES.toMillis(config.getLong("work.maxAgeMinutes", 60)),
+                    config.getLong("work.maxBytes", 0),
+                    TimeUnit.SECONDS.toMillis(config.getLong("work.reaper.intervalSeconds", 30)));
+        }
+        else {
+            reaper = null;
+        }
+        router = new EngineRouter(createEndpoints(config, isolation, reaper), policy);
+        logger.log(Level.INFO, "Routing connections across {0} engine(s) using {1}",
+                new Object[]{router.getEndpoints().size(), policy});
     }
 
     boolean isLocal() {
-        return ConnectionBuilder.CONNECTION_TYPE == ConnectionType.LOCAL;
+        return connectionType == ConnectionType.LOCAL;
+    }
+
+    /**
+     * @return the engine endpoints connections are routed to
+     */
+    public List<EngineEndpoint> getEndpoints() {
+        return router.getEndpoints();
     }
 
     /**
@@ -60,51 +155,229 @@ public class ConnectionBuilder
      * @throws SDKException if an unexpected error occurs
      */
     public ExecutionConnection createExecutionConnection() throws SDKException {
-        logger.info("Creating ExecutionConnection");
-        if (isLocal()) {
-            return factory.createLocalConnection();
-        }
-        else {
+        return createExecutionConnection(null);
+    }
+
+    /**
+     * Build and return a local ExecutionConnection instance routed using the
+     * provided key.
+     * @param routingKey key used by PACKAGE_HASH routing, typically the name of
+     * the package the connection will execute.  May be null.
+     * @return com.pervasive.di.client.sdk.ExecutionConnection  instance
+     * @throws SDKException if an unexpected error occurs
+     */
+    public ExecutionConnection createExecutionConnection(String routingKey) throws SDKException {
+        if (!isLocal()) {
             throw new IllegalStateException("Remote connections are not supported");
         }
+        synchronized (reusable) {
+            Deque<ExecutionConnection> idleConnections = idle.get(routingKey);
+            if (idleConnections != null && !idleConnections.isEmpty()) {
+                logger.log(Level.FINE, "Reusing idle ExecutionConnection for {0}", routingKey);
+                return idleConnections.pop();
+            }
+        }
+        EngineEndpoint endpoint = router.select(routingKey);
+        logger.log(Level.INFO, "Creating ExecutionConnection on engine {0}", endpoint);
+        ExecutionConnection cxn = endpoint.connect();
+        inUse.put(cxn, endpoint);
+        return cxn;
     }
 
-    private static ConnectionFactory createFactory() {
-        Properties props = getConfiguration();
-        logConfiguration(props);
-        ConnectionFactory connectionFactory = new ConnectionFactory();
-        connectionFactory.setProperties(props);
-        return connectionFactory;
+    /**
+     * Submit a task and wait for its job to end, counting the job against the
+     * connection's engine while it runs
+     * @param cxn connection created by this builder
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @return the finished job
+     * @throws SDKException if the task can't be submitted
+     */
+    public Job submit(ExecutionConnection cxn, Task task) throws SDKException {
+        jobSubmitted(cxn);
+        try {
+            return cxn.submit(task, false);
+        }
+        finally {
+            jobEnded(cxn);
+        }
     }
 
-    private static void logConfiguration(Properties props) {
-        logger.info("Configuring factory");
-        Enumeration e = props.propertyNames();
-        while (e.hasMoreElements()) {
-            String propName = (String)e.nextElement();
-            String propVal = props.getProperty(propName);
-            logger.log(Level.INFO, "{0} = {1}", new String[]{propName, propVal});
+    /**
+     * Submit a task asynchronously, counting the job against the connection's
+     * engine until the listener is told that the job has ended
+     * @param cxn connection created by this builder
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @param listener listener which receives the job's progress events
+     * @return the submitted job
+     * @throws SDKException if the task can't be submitted
+     */
+    public Job submit(ExecutionConnection cxn, Task task, JobListener listener) throws SDKException {
+        jobSubmitted(cxn);
+        try {
+            return cxn.submit(task, new JobEndListener(cxn, listener));
+        } catch (SDKException | RuntimeException e) {
+            jobEnded(cxn);
+            throw e;
         }
-        logger.info("End factory configuration\n");
     }
 
-    private static Properties getConfiguration() {
-        if (CONNECTION_TYPE != ConnectionType.LOCAL)
-            throw new IllegalStateException(
-                    "ConnectionFactory can't be created with non-local connection type.");
-        Properties props = new Properties();
-        props.put(ConnectionFactory.CONNECTIONTYPE, CONNECTION_TYPE.toString());
-        props.put(ConnectionFactory.LOCAL_ENGINE_INSTALL_PATH, INSTALL_PATH);
-        props.put(ConnectionFactory.INI_FILE_PATH,INI_FILE_PATH);
-        props.put(ConnectionFactory.LOCAL_ENGINE_LISTENER_PORT, LISTENER_PORT);
-        props.put(ConnectionFactory.LOCAL_WORK_DIRECTORY, workingDir());
-        props.put(ConnectionFactory.PACKAGELOCATION, PACKAGE_LOCATION);
+    /**
+     * Count a job submitted on a connection created by this builder.  Only
+     * needed by callers which submit to the connection directly, for example
+     * with a listener shared by many jobs; every call must be matched by a
+     * call to jobEnded().
+     * @param cxn connection the job is submitted on
+     */
+    void jobSubmitted(ExecutionConnection cxn) {
+        EngineEndpoint endpoint = inUse.get(cxn);
+        if (endpoint != null)
+            endpoint.jobStarted();
+    }
 
-        return props;
+    /**
+     * @param cxn connection a job counted by jobSubmitted() was submitted on
+     */
+    void jobEnded(ExecutionConnection cxn) {
+        EngineEndpoint endpoint = inUse.get(cxn);
+        if (endpoint != null)
+            endpoint.jobEnded();
+    }
+
+    /**
+     * Keep a connection open when it is released, for reuse by the next
+     * connection created with the same routing key.  The connection is
+     * disconnected by shutdown().
+     * @param cxn connection returned by createExecutionConnection
+     * @param routingKey the routing key the connection was created with
+     */
+    public void keepOpen(ExecutionConnection cxn, String routingKey) {
+        synchronized (reusable) {
+            reusable.put(cxn, routingKey);
+        }
+    }
+
+    /**
+     * Disconnect a connection created by this builder and make its engine
+     * available to the routing policy again.  Connections marked with
+     * keepOpen() are kept idle instead.
+     * @param cxn connection returned by createExecutionConnection
+     */
+    public void release(ExecutionConnection cxn) {
+        synchronized (reusable) {
+            if (reusable.containsKey(cxn)) {
+                idle.computeIfAbsent(reusable.get(cxn), k -> new ArrayDeque<>()).push(cxn);
+                return;
+            }
+        }
+        disconnect(cxn);
+    }
+
+    /**
+     * Drop a connection which may be broken, for example because a submit on
+     * it failed, rather than keeping it for reuse
+     * @param cxn connection returned by createExecutionConnection
+     */
+    public void discard(ExecutionConnection cxn) {
+        synchronized (reusable) {
+            reusable.remove(cxn);
+        }
+        disconnect(cxn);
+    }
+
+    private void disconnect(ExecutionConnection cxn) {
+        EngineEndpoint endpoint = inUse.remove(cxn);
+        cxn.disconnect();
+        if (endpoint != null) {
+            endpoint.released(cxn);
+        }
+    }
+
+    /**
+     * Disconnect the idle connections kept open for reuse, then run a final
+     * sweep of the work directories of released connections and stop the
+     * background reaper.
+     */
+    public void shutdown() {
+        List<ExecutionConnection> idleConnections = new ArrayList<>();
+        synchronized (reusable) {
+            for (Deque<ExecutionConnection> keyConnections : idle.values()) {
+                idleConnections.addAll(keyConnections);
+            }
+            idle.clear();
+            reusable.clear();
+        }
+        for (ExecutionConnection cxn : idleConnections) {
+            disconnect(cxn);
+        }
+        if (reaper != null) {
+            reaper.shutdown();
+        }
+    }
+
+    /**
+     * Counts a job as ended the first time it reports a final status
+     */
+    private class JobEndListener implements JobListener
+    {
+        private final ExecutionConnection cxn;
+        private final JobListener delegate;
+        private boolean ended = false;
+
+        JobEndListener(ExecutionConnection cxn, JobListener delegate) {
+            this.cxn = cxn;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void jobProgress(JobProgress progress) {
+            JobStatusCode status = progress.getJobStatusCode();
+            if (status == JobStatusCode.FINISHED_OK || status == JobStatusCode.FINISHED_ERROR
+                    || status == JobStatusCode.ABORTED) {
+                boolean first;
+                synchronized (this) {
+                    first = !ended;
+                    ended = true;
+                }
+                if (first)
+                    jobEnded(cxn);
+            }
+            if (delegate != null)
+                delegate.jobProgress(progress);
+        }
+    }
+
+    private static List<EngineEndpoint> createEndpoints(SamplesConfig config, WorkIsolation isolation,
+            WorkDirectoryReaper reaper) {
+        String workRoot = config.getWorkRoot().getPath();
+        int count = config.getInt("engine.count", 1);
+        if (count < 1)
+            throw new IllegalStateException("engine.count must be at least 1");
+        List<EngineEndpoint> endpoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String prefix = "engine." + i + ".";
+            // A single engine keeps the historical work directory; multiple
+            // engines each get their own so they never share work files.
+            String defaultWorkDir = count == 1 ? workRoot : workRoot + "/engine" + i;
+            Properties props = new Properties();
+            props.put(ConnectionFactory.CONNECTIONTYPE, ConnectionType.LOCAL.toString());
+            String installPath = config.getString(prefix + "installPath", null);
+            String iniFile = config.getString(prefix + "iniFile", null);
+            props.put(ConnectionFactory.LOCAL_ENGINE_INSTALL_PATH,
+                    installPath != null ? installPath : IniDefaults.INSTALL_PATH);
+            props.put(ConnectionFactory.INI_FILE_PATH,
+                    iniFile != null ? iniFile : IniDefaults.INI_FILE_PATH);
+            props.put(ConnectionFactory.LOCAL_ENGINE_LISTENER_PORT,
+                    String.valueOf(config.getInt(prefix + "port", LISTENER_PORT + i)));
+            props.put(ConnectionFactory.LOCAL_WORK_DIRECTORY,
+                    workingDir(config.getString(prefix + "workDirectory", defaultWorkDir)));
+            props.put(ConnectionFactory.PACKAGELOCATION, config.getString(prefix + "packageLocation", PACKAGE_LOCATION));
+            endpoints.add(new EngineEndpoint("engine" + i, props, isolation, reaper));
+        }
+        return endpoints;
     }
 
-    private static String workingDir() {
-        File f = new File(WORKING_DIRECTORY);
+    private static String workingDir(String path) {
+        File f = new File(path);
         f.mkdirs();
         return f.getAbsolutePath();
     }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JobSubmitter which spreads asynchronous submissions round robin across a
+ * set of connections created by a ConnectionBuilder, optionally through an
+ * AdaptiveLimiter which caps the number of jobs in flight.  Each package gets
+ * its own set of connections, created when its first task is submitted and
+ * routed by the package name, so PACKAGE_HASH routing keeps a package on one
+ * engine.
+ */
+public class ConnectionJobSubmitter implements JobSubmitter
+{
+    private final ConnectionBuilder cxnBuilder;
+    private final int count;
+    private final Map<String, List<ExecutionConnection>> connections = new HashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AdaptiveLimiter limiter;
+
+    /**
+     * @param cxnBuilder builder used to create the connections
+     * @param count number of connections per package
+     */
+    public ConnectionJobSubmitter(ConnectionBuilder cxnBuilder, int count) {
+        this(cxnBuilder, count, null);
+    }
+
+    /**
+     * @param cxnBuilder builder used to create the connections
+     * @param count number of connections per package
+     * @param limiter limiter which submissions wait on, may be null
+     */
+    public ConnectionJobSubmitter(ConnectionBuilder cxnBuilder, int count, AdaptiveLimiter limiter) {
+        if (count < 1)
+            throw new IllegalArgumentException("At least one connection is required");
+        this.cxnBuilder = cxnBuilder;
+        this.count = count;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void submit(Task task, Completion completion) throws SDKException {
+        List<ExecutionConnection> packageConnections = connectionsFor(task.getPackageName());
+        ExecutionConnection cxn = packageConnections.get(
+                Math.floorMod(next.getAndIncrement(), packageConnections.size()));
+        JobHandle handle;
+        if (limiter == null) {
+            handle = JobHandle.submit(cxnBuilder, cxn, task, null);
+        }
+        else {
+            try {
+                handle = limiter.submit(cxnBuilder, cxn, task, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting to submit " + task.getTaskName());
+            }
+        }
+        handle.completion().thenAccept(status -> completion.done(status == JobStatusCode.FINISHED_OK));
+    }
+
+    /**
+     * @return the limiter submissions wait on, or null
+     */
+    public AdaptiveLimiter getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (List<ExecutionConnection> packageConnections : connections.values()) {
+            for (ExecutionConnection cxn : packageConnections) {
+                cxnBuilder.release(cxn);
+            }
+        }
+        connections.clear();
+    }
+
+    private synchronized List<ExecutionConnection> connectionsFor(String packageName) throws SDKException {
+        String key = packageName == null ? "" : packageName;
+        List<ExecutionConnection> packageConnections = connections.get(key);
+        if (packageConnections == null) {
+            packageConnections = new ArrayList<>(count);
+            try {
+                for (int i = 0; i < count; i++) {
+                    packageConnections.add(cxnBuilder.createExecutionConnection(packageName));
+                }
+            } catch (SDKException | RuntimeException e) {
+                for (ExecutionConnection cxn : packageConnections) {
+                    cxnBuilder.release(cxn);
+                }
+                throw e;
+            }
+            connections.put(key, packageConnections);
+        }
+        return packageConnections;
+    }
+}
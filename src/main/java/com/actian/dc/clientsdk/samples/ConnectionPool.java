@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.SDKException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fixed size pool of ExecutionConnection instances created by a
+ * ConnectionBuilder.  Connections are created on demand up to the pool size,
+ * or up front by calling prestart().  A pool used for a single package can
+ * be given the package name, so its connections are routed by package.
+ */
+public class ConnectionPool
+{
+    private static final Logger logger = LogUtil.getLogger(ConnectionPool.class);
+
+    private final ConnectionBuilder cxnBuilder;
+    private final int size;
+    private final String routingKey;
+    private final BlockingQueue<ExecutionConnection> idle = new LinkedBlockingQueue<>();
+    private int created = 0;
+    private boolean closed = false;
+
+    public ConnectionPool(ConnectionBuilder cxnBuilder, int size) {
+        this(cxnBuilder, size, null);
+    }
+
+    /**
+     * @param cxnBuilder builder used to create the connections
+     * @param size maximum number of connections
+     * @param routingKey name of the package the connections will run, may be null
+     */
+    public ConnectionPool(ConnectionBuilder cxnBuilder, int size, String routingKey) {
+        if (size < 1)
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        this.cxnBuilder = cxnBuilder;
+        this.size = size;
+        this.routingKey = routingKey;
+    }
+
+    /**
+     * @return the builder the pool's connections are created with, which
+     * jobs on them should be submitted through
+     */
+    public ConnectionBuilder getConnectionBuilder() {
+        return cxnBuilder;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Create all of the pool's connections now rather than on first use
+     * @throws SDKException if a connection can't be created
+     */
+    public void prestart() throws SDKException {
+        List<ExecutionConnection> created = new ArrayList<>();
+        ExecutionConnection cxn;
+        while ((cxn = create()) != null) {
+            created.add(cxn);
+        }
+        idle.addAll(created);
+        logger.log(Level.INFO, "Connection pool started with {0} connection(s)", size);
+    }
+
+    /**
+     * Take a connection from the pool, creating one if the pool is not yet full
+     * and waiting for one to be returned otherwise.
+     * @return com.pervasive.di.client.sdk.ExecutionConnection instance
+     * @throws SDKException if a connection can't be created
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ExecutionConnection borrow() throws SDKException, InterruptedException {
+        ExecutionConnection cxn = idle.poll();
+        while (cxn == null) {
+            cxn = create();
+            // a discarded connection frees a slot without waking the waiters,
+            // so don't wait for a connection to be given back indefinitely
+            if (cxn == null)
+                cxn = idle.poll(1, TimeUnit.SECONDS);
+        }
+        return cxn;
+    }
+
+    /**
+     * Return a connection obtained from borrow() to the pool
+     * @param cxn connection to return
+     */
+    public void giveBack(ExecutionConnection cxn) {
+        synchronized (this) {
+            if (closed) {
+                cxnBuilder.release(cxn);
+                return;
+            }
+        }
+        idle.add(cxn);
+    }
+
+    /**
+     * Drop a connection obtained from borrow() which may be broken, for
+     * example because a submit on it failed, instead of giving it back.  Its
+     * slot is freed, so a new connection is created when one is next needed.
+     * @param cxn connection to drop
+     */
+    public void discard(ExecutionConnection cxn) {
+        synchronized (this) {
+            created--;
+        }
+        cxnBuilder.discard(cxn);
+    }
+
+    /**
+     * Release all connections.  Connections that are borrowed when the pool is
+     * closed are released when they are given back.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        ExecutionConnection cxn;
+        while ((cxn = idle.poll()) != null) {
+            cxnBuilder.release(cxn);
+        }
+    }
+
+    private ExecutionConnection create() throws SDKException {
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("Connection pool is closed");
+            if (created >= size)
+                return null;
+            // reserve the slot so concurrent callers don't overfill the pool
+            created++;
+        }
+        boolean ok = false;
+        try {
+            ExecutionConnection cxn = cxnBuilder.createExecutionConnection(routingKey);
+            ok = true;
+            return cxn;
+        }
+        finally {
+            if (!ok) {
+                synchronized (this) {
+                    created--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executes a small pipeline of dependent tasks with the DagExecutor.
+ * The invoices map runs first, followed by the process which runs it again and
+ * then the same process by entry point.  These all write the invoices target
+ * file, so each depends on the one before.  The packaged V9 map, which writes
+ * its own target, has no dependencies and runs in parallel with them on the
+ * second pooled connection.
+ */
+public class DagExecutionSample implements ConnectionUser
+{
+    private static final Logger LOGGER = LogUtil.getLogger(DagExecutionSample.class);
+
+    @Override
+    public boolean supportsLocal() {
+        return true;
+    }
+
+    /**
+     * @see com.actian.dc.clientsdk.samples.ConnectionUser#useConnection(com.actian.dc.clientsdk.samples.ConnectionBuilder) 
+     */
+    @Override
+    public boolean useConnection(ConnectionBuilder cxnBuilder) {
+        ConnectionPool pool = new ConnectionPool(cxnBuilder, 2, SamplesRunner.SAMPLE_PACKAGE_NAME);
+        try {
+            Task processByEntryPoint = SamplesRunner.sampleTask(null);
+            processByEntryPoint.setName("Run sample process using entry point");
+            processByEntryPoint.setEntryPoint("Samples-1.0/process_map_invoices_ascii_to_ascii_p.process");
+
+            TaskGraph graph = new TaskGraph()
+                    .add("map", SamplesRunner.sampleTask("Samples.map.rtc"))
+                    .add("process", SamplesRunner.sampleTask("Samples.process.rtc"), "map")
+                    .add("processEntryPoint", processByEntryPoint, "process")
+                    .add("v9Map", V9ExecutionSample.packagedTask());
+
+            Map<String, DagExecutor.Outcome> outcomes = new DagExecutor(pool).execute(graph);
+            boolean ok = true;
+            for (Map.Entry<String, DagExecutor.Outcome> entry : outcomes.entrySet()) {
+                LOGGER.log(Level.INFO, "Task {0}: {1}", new Object[]{entry.getKey(), entry.getValue()});
+                ok &= entry.getValue() == DagExecutor.Outcome.SUCCEEDED;
+            }
+            return ok;
+        }
+        catch (SDKException e) {
+            LOGGER.severe(e.getMessage());
+            return false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.severe("Interrupted while waiting for the task graph");
+            return false;
+        }
+        finally {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobServiceReturnCode;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.Task;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executes a TaskGraph on a ConnectionPool.  A task is submitted as soon as
+ * all of its dependencies have finished successfully, so independent branches
+ * of the graph run in parallel, one per pooled connection.  When a task fails
+ * only the tasks downstream of it are cancelled; other branches carry on.
+ */
+public class DagExecutor
+{
+    private static final Logger logger = LogUtil.getLogger(DagExecutor.class);
+
+    /**
+     * Final state of a task in the graph
+     */
+    public enum Outcome
+    {
+        SUCCEEDED,
+        FAILED,
+        /** Not run because a task it depends on failed */
+        CANCELLED
+    }
+
+    /**
+     * Runs a single task of the graph to completion
+     */
+    interface TaskRunner
+    {
+        /**
+         * @param id id of the task in the graph
+         * @param task the task to run
+         * @return true if the task finished successfully
+         * @throws Exception if the task could not be run
+         */
+        boolean run(String id, Task task) throws Exception;
+    }
+
+    private final TaskRunner runner;
+    private final int parallelism;
+
+    public DagExecutor(ConnectionPool pool) {
+        this((id, task) -> runOnPool(pool, id, task), pool.getSize());
+    }
+
+    /**
+     * @param runner runs each task
+     * @param parallelism maximum number of tasks run at the same time
+     */
+    DagExecutor(TaskRunner runner, int parallelism) {
+        this.runner = runner;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Execute every task in the graph and wait for them to finish
+     * @param graph the tasks to execute
+     * @return task id to outcome, in the order the tasks were added to the graph
+     * @throws InterruptedException if interrupted while waiting.  Tasks
+     * already submitted continue to run.
+     */
+    public Map<String, Outcome> execute(TaskGraph graph) throws InterruptedException {
+        Run run = new Run(graph);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            run.start(executor);
+            run.done.await();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        Map<String, Outcome> ordered = new LinkedHashMap<>();
+        for (String id : graph.nodes().keySet()) {
+            ordered.put(id, run.outcomes.get(id));
+        }
+        return Collections.unmodifiableMap(ordered);
+    }
+
+    private class Run
+    {
+        private final TaskGraph graph;
+        private final Map<String, Integer> remaining = new HashMap<>();
+        private final Map<String, Outcome> outcomes = new HashMap<>();
+        private final CountDownLatch done;
+        private ExecutorService executor;
+
+        Run(TaskGraph graph) {
+            this.graph = graph;
+            this.done = new CountDownLatch(graph.size());
+            for (TaskGraph.Node node : graph.nodes().values()) {
+                remaining.put(node.id, node.dependencies.size());
+            }
+        }
+
+        synchronized void start(ExecutorService executor) {
+            this.executor = executor;
+            for (TaskGraph.Node node : graph.nodes().values()) {
+                if (node.dependencies.isEmpty())
+                    schedule(node);
+            }
+        }
+
+        private void schedule(TaskGraph.Node node) {
+            executor.execute(() -> finished(node, runNode(node)));
+        }
+
+        private synchronized void finished(TaskGraph.Node node, Outcome outcome) {
+            record(node.id, outcome);
+            if (outcome == Outcome.SUCCEEDED) {
+                for (String dependent : node.dependents) {
+                    int count = remaining.merge(dependent, -1, Integer::sum);
+                    if (count == 0 && !outcomes.containsKey(dependent))
+                        schedule(graph.nodes().get(dependent));
+                }
+            }
+            else {
+                for (String dependent : graph.downstreamOf(node.id)) {
+                    if (!outcomes.containsKey(dependent)) {
+                        logger.log(Level.INFO, "Cancelling task {0}: upstream task {1} failed",
+                                new Object[]{dependent, node.id});
+                        record(dependent, Outcome.CANCELLED);
+                    }
+                }
+            }
+        }
+
+        private void record(String id, Outcome outcome) {
+            outcomes.put(id, outcome);
+            done.countDown();
+        }
+    }
+
+    private Outcome runNode(TaskGraph.Node node) {
+        try {
+            return runner.run(node.id, node.task) ? Outcome.SUCCEEDED : Outcome.FAILED;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.FAILED;
+        }
+        catch (Exception e) {
+            logger.log(Level.SEVERE, "Task {0} failed: {1}", new Object[]{node.id, e.getMessage()});
+            return Outcome.FAILED;
+        }
+    }
+
+    private static boolean runOnPool(ConnectionPool pool, String id, Task task) throws Exception {
+        ExecutionConnection cxn = pool.borrow();
+        Job job = null;
+        try {
+            logger.log(Level.INFO, "Submitting task {0} ({1})", new Object[]{id, task.getTaskName()});
+            job = pool.getConnectionBuilder().submit(cxn, task);
+        }
+        finally {
+            // a connection whose submit failed may be broken
+            if (job != null)
+                pool.giveBack(cxn);
+            else
+                pool.discard(cxn);
+        }
+        logger.log(Level.INFO, "Task {0} finished {1}", new Object[]{id, job.getJobStatus()});
+        return job.getJobStatus() == JobStatusCode.FINISHED_OK
+                && job.getResult().getServiceReturnCode() == JobServiceReturnCode.SUCCEEDED;
+    }
+}
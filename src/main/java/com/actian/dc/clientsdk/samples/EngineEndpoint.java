@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ConnectionFactory;
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.SDKException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single local engine instance (listener port, work directory and install)
+ * that connections can be created against.  Tracks the number of jobs in
+ * flight on the engine, and the number of connections handed out, so that
+ * routing policies can balance the load.
+ * <p>
+ * With WorkIsolation.CONNECTION each connection is created with its own
+ * subdirectory of the engine work directory, so concurrent jobs don't contend
+ * on a single directory.
+ */
+public class EngineEndpoint
+{
+    private static final Logger logger = LogUtil.getLogger(EngineEndpoint.class);
+
+    private final String name;
+    private final Properties props;
+    private final WorkIsolation isolation;
+    private final WorkDirectoryReaper reaper;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger inFlightJobs = new AtomicInteger();
+    private final Map<ExecutionConnection, File> workDirs =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+    private ConnectionFactory factory;
+
+    EngineEndpoint(String name, Properties props) {
+        this(name, props, WorkIsolation.ENGINE, null);
+    }
+
+    EngineEndpoint(String name, Properties props, WorkIsolation isolation, WorkDirectoryReaper reaper) {
+        this.name = name;
+        this.props = props;
+        this.isolation = isolation;
+        this.reaper = reaper;
+        if (reaper != null) {
+            reaper.addRoot(new File(props.getProperty(ConnectionFactory.LOCAL_WORK_DIRECTORY)));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of jobs submitted to this engine which have not ended yet
+     */
+    public int getInFlightJobs() {
+        return inFlightJobs.get();
+    }
+
+    /**
+     * @return the number of connections routed to this engine which have not
+     * been released yet, including those still being created
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Count a connection against this engine.  Called by the EngineRouter
+     * when it selects the engine, so that concurrent selections see it.
+     */
+    void reserveConnection() {
+        connections.incrementAndGet();
+    }
+
+    void jobStarted() {
+        inFlightJobs.incrementAndGet();
+    }
+
+    void jobEnded() {
+        inFlightJobs.decrementAndGet();
+    }
+
+    String getProperty(String key) {
+        return props.getProperty(key);
+    }
+
+    /**
+     * Create a new local ExecutionConnection against this engine, which must
+     * have been reserved with reserveConnection().  The reservation is given
+     * back if the connection can't be created.
+     * @return com.pervasive.di.client.sdk.ExecutionConnection instance
+     * @throws SDKException if an unexpected error occurs
+     */
+    ExecutionConnection connect() throws SDKException {
+        if (isolation == WorkIsolation.ENGINE) {
+            try {
+                ConnectionFactory engineFactory = factory();
+                long start = System.nanoTime();
+                ExecutionConnection cxn = engineFactory.createLocalConnection();
+                StartupTimer.record("connect", System.nanoTime() - start);
+                return cxn;
+            } catch (SDKException | RuntimeException e) {
+                connections.decrementAndGet();
+                throw e;
+            }
+        }
+
+        File root = new File(props.getProperty(ConnectionFactory.LOCAL_WORK_DIRECTORY));
+        File workDir;
+        try {
+            workDir = reaper != null ? reaper.createActive(root)
+                    : WorkDirectoryReaper.createConnectionDirectory(root);
+        } catch (IOException e) {
+            connections.decrementAndGet();
+            throw new SDKException("Unable to create a work directory under " + root + ": " + e.getMessage());
+        }
+        Properties cxnProps = new Properties();
+        cxnProps.putAll(props);
+        cxnProps.put(ConnectionFactory.LOCAL_WORK_DIRECTORY, workDir.getAbsolutePath());
+        ConnectionFactory cxnFactory = new ConnectionFactory();
+        cxnFactory.setProperties(cxnProps);
+        logger.log(Level.INFO, "Using work directory {0}", workDir.getAbsolutePath());
+        ExecutionConnection cxn;
+        try {
+            long start = System.nanoTime();
+            cxn = cxnFactory.createLocalConnection();
+            StartupTimer.record("connect", System.nanoTime() - start);
+        } catch (SDKException | RuntimeException e) {
+            if (reaper != null)
+                reaper.markFinished(workDir);
+            connections.decrementAndGet();
+            throw e;
+        }
+        workDirs.put(cxn, workDir);
+        return cxn;
+    }
+
+    void released(ExecutionConnection cxn) {
+        connections.decrementAndGet();
+        File workDir = workDirs.remove(cxn);
+        if (workDir != null && reaper != null) {
+            reaper.markFinished(workDir);
+        }
+    }
+
+    private synchronized ConnectionFactory factory() {
+        if (factory == null) {
+            logConfiguration();
+            long start = System.nanoTime();
+            factory = new ConnectionFactory();
+            factory.setProperties(props);
+            StartupTimer.record("factory", System.nanoTime() - start);
+        }
+        return factory;
+    }
+
+    private void logConfiguration() {
+        logger.log(Level.INFO, "Configuring factory for engine {0}", name);
+        Enumeration e = props.propertyNames();
+        while (e.hasMoreElements()) {
+            String propName = (String)e.nextElement();
+            String propVal = props.getProperty(propName);
+            logger.log(Level.INFO, "{0} = {1}", new String[]{propName, propVal});
+        }
+        logger.info("End factory configuration\n");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
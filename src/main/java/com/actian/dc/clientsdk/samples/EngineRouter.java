@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the EngineEndpoint a new connection should be created against,
+ * according to the configured RoutingPolicy.  Selection and the reservation
+ * of the connection on the selected engine happen together, so concurrent
+ * selections don't all pick the same least loaded engine.
+ */
+class EngineRouter
+{
+    // Virtual nodes per engine on the consistent hash ring.  More nodes give a
+    // more even spread of packages across a small number of engines.
+    private static final int VIRTUAL_NODES = 64;
+
+    private final List<EngineEndpoint> endpoints;
+    private final RoutingPolicy policy;
+    private final AtomicInteger next = new AtomicInteger();
+    private final TreeMap<Long, EngineEndpoint> ring = new TreeMap<>();
+
+    EngineRouter(List<EngineEndpoint> endpoints, RoutingPolicy policy) {
+        if (endpoints.isEmpty())
+            throw new IllegalArgumentException("At least one engine endpoint is required");
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        this.policy = policy;
+        for (EngineEndpoint endpoint : endpoints) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(endpoint.getName() + "#" + i), endpoint);
+            }
+        }
+    }
+
+    List<EngineEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    RoutingPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Select an engine endpoint and reserve a connection on it
+     * @param routingKey key used by hash based routing, typically the package
+     * name.  May be null, in which case round robin selection is used.
+     * @return the selected EngineEndpoint
+     */
+    synchronized EngineEndpoint select(String routingKey) {
+        EngineEndpoint endpoint;
+        if (endpoints.size() == 1) {
+            endpoint = endpoints.get(0);
+        }
+        else if (policy == RoutingPolicy.LEAST_OUTSTANDING) {
+            endpoint = leastOutstanding();
+        }
+        else if (policy == RoutingPolicy.PACKAGE_HASH && routingKey != null) {
+            endpoint = fromRing(routingKey);
+        }
+        else {
+            endpoint = roundRobin();
+        }
+        endpoint.reserveConnection();
+        return endpoint;
+    }
+
+    private EngineEndpoint roundRobin() {
+        int i = Math.floorMod(next.getAndIncrement(), endpoints.size());
+        return endpoints.get(i);
+    }
+
+    private EngineEndpoint leastOutstanding() {
+        // Fewest jobs in flight wins, then fewest connections, as a new
+        // connection's jobs haven't been submitted yet.  Start the scan at a
+        // rotating offset so remaining ties are spread across engines.
+        int start = Math.floorMod(next.getAndIncrement(), endpoints.size());
+        EngineEndpoint best = null;
+        for (int i = 0; i < endpoints.size(); i++) {
+            EngineEndpoint candidate = endpoints.get((start + i) % endpoints.size());
+            if (best == null || candidate.getInFlightJobs() < best.getInFlightJobs()
+                    || (candidate.getInFlightJobs() == best.getInFlightJobs()
+                        && candidate.getConnections() < best.getConnections()))
+                best = candidate;
+        }
+        return best;
+    }
+
+    private EngineEndpoint fromRing(String key) {
+        Map.Entry<Long, EngineEndpoint> entry = ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -17,8 +17,12 @@ package com.actian.dc.clientsdk.samples;
 
 import com.pervasive.di.client.sdk.ExecutionConnection;
 import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobListener;
 import com.pervasive.di.client.sdk.JobServiceReturnCode;
 import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -30,6 +34,15 @@ abstract class ExecutionConnectionUser implements ConnectionUser
 {
     protected static final Logger LOGGER = LogUtil.getLogger(ExecutionConnectionUser.class);
     
+    /**
+     * Data volumes of the jobs reported by all samples, per package and entry point
+     */
+    static final JobStatsCollector JOB_STATS = new JobStatsCollector();
+    
+    private static final JobStatsExtractor STATS_EXTRACTOR = new JobStatsExtractor();
+    
+    private ConnectionBuilder cxnBuilder;
+    
     /**
      * Returns true if the sample supports local execution.  The default value
      * is true.
@@ -48,6 +61,15 @@ abstract class ExecutionConnectionUser implements ConnectionUser
      */
     abstract boolean useConnection(ExecutionConnection cxn) throws SDKException;
 
+    /**
+     * Returns the name of the package the sample runs, used to route its
+     * connection when engines are selected by package.
+     * @return the package name
+     */
+    protected String routingKey() {
+        return SamplesRunner.SAMPLE_PACKAGE_NAME;
+    }
+
     /**
      * 
      * @see com.actian.dc.clientsdk.samples.ConnectionUser#useConnection(com.actian.dc.clientsdk.samples.ConnectionBuilder) 
@@ -57,23 +79,79 @@ abstract class ExecutionConnectionUser implements ConnectionUser
     {
 
         ExecutionConnection cxn = null;
+        this.cxnBuilder = cxnBuilder;
         try
         {
-            cxn = cxnBuilder.createExecutionConnection();
+            cxn = cxnBuilder.createExecutionConnection(routingKey());
             return useConnection(cxn);
         }
         catch (SDKException e) {
             LOGGER.severe(e.getMessage());
+            if (cxn != null) {
+                // the connection may be broken, so don't keep it for reuse
+                cxnBuilder.discard(cxn);
+                cxn = null;
+            }
             return false;
         }
         finally {
             // disconnect from the service
             if (cxn != null) {
-                cxn.disconnect();
+                cxnBuilder.release(cxn);
             }
         }
     }
     
+    /**
+     * @return the builder the sample's connection was created with
+     */
+    protected ConnectionBuilder getConnectionBuilder() {
+        return cxnBuilder;
+    }
+
+    /**
+     * Submit a task and wait for its job to end.  Equivalent to
+     * cxn.submit(task, false), but counts the job against its engine for routing.
+     * @param cxn connection passed to useConnection
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @return the finished job
+     * @throws SDKException if the task can't be submitted
+     */
+    protected Job submit(ExecutionConnection cxn, Task task) throws SDKException {
+        return cxnBuilder.submit(cxn, task);
+    }
+
+    /**
+     * Submit a task asynchronously.  Equivalent to cxn.submit(task, listener),
+     * but counts the job against its engine for routing.
+     * @param cxn connection passed to useConnection
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @param listener listener which receives the job's progress events
+     * @return the submitted job
+     * @throws SDKException if the task can't be submitted
+     */
+    protected Job submit(ExecutionConnection cxn, Task task, JobListener listener) throws SDKException {
+        return cxnBuilder.submit(cxn, task, listener);
+    }
+
+    /**
+     * Ask the engine to abort a job that is no longer wanted, for example
+     * because it missed its deadline or the waiting thread was interrupted.
+     * @param job job to abort, may be null if the submit never returned
+     * @param cxn connection through which the job was submitted
+     */
+    protected void abortJob(Job job, ExecutionConnection cxn)
+    {
+        if (job == null)
+            return;
+        try {
+            LOGGER.log(Level.INFO, "Aborting job {0}", job.getJobId());
+            cxn.abort(job);
+        } catch (Exception e) {
+            LOGGER.severe(e.getMessage());
+        }
+    }
+
     /**
      * Called to log job results and return true if the job completed successfully
      * @param job com.pervasive.di.client.sdk.Job instance representing the job that was executed
@@ -81,6 +159,20 @@ abstract class ExecutionConnectionUser implements ConnectionUser
      * @return true if the job succeeded, false otherwise
      */
     protected boolean reportResult(Job job, ExecutionConnection cxn) 
+    {
+        return reportResult(job, cxn, null, null);
+    }
+    
+    /**
+     * Called to log job results, record the job's data volumes and return true
+     * if the job completed successfully
+     * @param job com.pervasive.di.client.sdk.Job instance representing the job that was executed
+     * @param cxn com.pervasive.di.client.sdk.ExecutionConnection instance through which the job was executed
+     * @param task the task that was executed, may be null
+     * @param rtcFile runtime configuration the task was built from, may be null
+     * @return true if the job succeeded, false otherwise
+     */
+    protected boolean reportResult(Job job, ExecutionConnection cxn, Task task, File rtcFile) 
     {
         // Display any Error Message
         if (job.getResult().getErrorMessage() != null)
@@ -88,7 +180,11 @@ abstract class ExecutionConnectionUser implements ConnectionUser
 
         try {
             // Get the job log
-            LOGGER.info(cxn.getLog(job));
+            String log = cxn.getLog(job);
+            LOGGER.info(log);
+            JobStats stats = STATS_EXTRACTOR.extract(task, log, rtcFile, SamplesRunner.sampleMacros());
+            LOGGER.log(Level.INFO, "Job stats {0}", stats);
+            JOB_STATS.add(stats);
             return (job.getResult().getServiceReturnCode() == JobServiceReturnCode.SUCCEEDED);
         } catch (Exception e) {
             LOGGER.severe(e.getMessage());
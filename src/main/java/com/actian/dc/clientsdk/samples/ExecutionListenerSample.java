@@ -16,10 +16,10 @@
 package com.actian.dc.clientsdk.samples;
 
 import com.pervasive.di.client.sdk.*;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,6 +27,9 @@ import java.util.logging.Logger;
 /**
  * Executes multiple tasks asynchronously.
  * Uses inactivity on a shared queue of job progress events to determine when to shut down.
+ * The queue holds up to <code>progress.queue.capacity</code> events on the heap
+ * and spills the rest to a memory-mapped segment of <code>progress.spill.bytes</code>
+ * under <code>work.root</code>.
  */
 public class ExecutionListenerSample extends ExecutionConnectionUser
 {
@@ -41,7 +44,11 @@ public class ExecutionListenerSample extends ExecutionConnectionUser
         try
         {
             // Instantiate the listener and start the listening thread
-            QueueListener listener = new QueueListener(LOGGER);
+            SamplesConfig config = SamplesConfig.load();
+            QueueListener listener = new QueueListener(LOGGER, new SpillingProgressQueue(
+                    config.getInt("progress.queue.capacity", 1024),
+                    config.getInt("progress.spill.bytes", 8 * 1024 * 1024),
+                    config.getWorkRoot()));
             Thread thread = new Thread(listener);
             // this prevents the main thread from exiting before the listener is done
             thread.setDaemon(false);
@@ -55,7 +62,8 @@ public class ExecutionListenerSample extends ExecutionConnectionUser
                 // but you could also load a set of tasks to submit,
                 // or change the datasets or runtime configurations
                 Task task = SamplesRunner.sampleTask("Samples.process.rtc");
-                Job job = cxn.submit(task, listener);
+                Job job = submit(cxn, task, JobTracer.get().trace(task,
+                        SamplesRunner.sampleRuntimeConfig("Samples.process.rtc"), listener));
                 listener.addJob(job);
             }
             
@@ -65,6 +73,9 @@ public class ExecutionListenerSample extends ExecutionConnectionUser
                 Thread.sleep(1000);
             return true;
         }
+        catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to create the progress spill segment: {0}", e.getMessage());
+        }
         catch (InterruptedException e) {
             LOGGER.severe(e.getMessage());
         }
@@ -74,14 +85,15 @@ public class ExecutionListenerSample extends ExecutionConnectionUser
     private static class QueueListener implements JobListener, Runnable
     {
         private final Map<String, Job> jobmap = new HashMap<>();
-        private final BlockingQueue<JobProgress> myqueue = new LinkedBlockingQueue<>();
+        private final SpillingProgressQueue myqueue;
         private int queuesize=0;
         private boolean finished = false;
         
         private final Logger logger;
         
-        QueueListener(Logger logger) {
+        QueueListener(Logger logger, SpillingProgressQueue queue) {
             this.logger = logger;
+            this.myqueue = queue;
         }
 
         // the callback for the JobListner class
@@ -89,8 +101,9 @@ public class ExecutionListenerSample extends ExecutionConnectionUser
         @Override
         public synchronized void jobProgress(JobProgress progress)
         {
-            // just add it to the queue
-            myqueue.add(progress);
+            // just add it to the queue, which spills off the heap during a burst of events
+            if (!myqueue.add(progress))
+                logger.log(Level.FINE, "Dropped {0} event for job {1}", new Object[]{progress.getEventName(), progress.getJobId()});
         }
         
         // called by the parent app to place the job into the listener's job map
@@ -107,7 +120,7 @@ public class ExecutionListenerSample extends ExecutionConnectionUser
         @Override
         public void run()
         {
-            JobProgress progress = null;
+            SpillingProgressQueue.Event progress = null;
             while (!isFinished())
             {
                 try
@@ -144,12 +157,19 @@ public class ExecutionListenerSample extends ExecutionConnectionUser
                 for (Map.Entry pairs : jobmap.entrySet())
                     logger.log(Level.INFO, "TIMEOUT: Job {0} did not finish [{1}]",
                             new Object[]{pairs.getKey(), --queuesize});
-            myqueue.clear();
+            if (myqueue.getSpilled() > 0)
+                logger.log(Level.INFO, "{0} progress event(s) were spilled off the heap, {1} dropped",
+                        new Object[]{myqueue.getSpilled(), myqueue.getDropped()});
+            try {
+                myqueue.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to remove the progress spill segment: {0}", e.getMessage());
+            }
         }
         
-        private JobProgress pollRepeatedly(int secondsToWait, int retries) throws InterruptedException {
+        private SpillingProgressQueue.Event pollRepeatedly(int secondsToWait, int retries) throws InterruptedException {
             for (int i=0; i<retries; ++i) {
-                JobProgress progress = myqueue.poll(secondsToWait, TimeUnit.SECONDS);
+                SpillingProgressQueue.Event progress = myqueue.poll(secondsToWait, TimeUnit.SECONDS);
                 if (progress != null) {
                     return progress;
                 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends finished spans to a file, one JSON object per line.  Spans are
+ * handed to a background thread through a bounded queue and written in
+ * batches, so exporting never blocks the thread delivering job progress; if
+ * the queue is full the span is dropped and counted.
+ */
+class FileSpanExporter
+{
+    private static final Logger logger = LogUtil.getLogger(FileSpanExporter.class);
+
+    private static final int QUEUE_SIZE = 4096;
+    private static final int BATCH_SIZE = 256;
+
+    private final File file;
+    private final BlockingQueue<JobSpan> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    FileSpanExporter(File file) {
+        this.file = file;
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        writer = new Thread(this::writeLoop, "span-exporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void export(JobSpan span) {
+        if (!queue.offer(span))
+            dropped.incrementAndGet();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Write the spans still queued and stop the writer thread
+     */
+    void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped.get() > 0)
+            logger.log(Level.WARNING, "Dropped {0} span(s) because the export queue was full", dropped.get());
+    }
+
+    private void writeLoop() {
+        List<JobSpan> batch = new ArrayList<>(BATCH_SIZE);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+            while (running || !queue.isEmpty()) {
+                JobSpan span = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (span == null)
+                    continue;
+                batch.add(span);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (JobSpan s : batch) {
+                    out.write(s.toJson());
+                    out.write('\n');
+                }
+                out.flush();
+                batch.clear();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to write spans to {0}: {1}", new Object[]{file, e.getMessage()});
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+
+/**
+ * Executes the sample map twice using the IncrementalExecutor.  The second
+ * run is skipped because neither the runtime configuration, the package nor
+ * the source file have changed since the first run succeeded.
+ */
+public class IncrementalExecutionSample extends ExecutionConnectionUser
+{
+    static final String LEDGER_NAME = "run-ledger.properties";
+
+    /**
+     * @throws com.pervasive.di.client.sdk.SDKException
+     * @see com.actian.dc.clientsdk.samples.ExecutionConnectionUser#useConnection(com.pervasive.di.client.sdk.ExecutionConnection) 
+     */
+    @Override
+    public boolean useConnection(ExecutionConnection cxn) throws SDKException
+    {
+        IncrementalExecutor executor;
+        try {
+            executor = new IncrementalExecutor(new File(SamplesConfig.load().getWorkRoot(), LEDGER_NAME), true);
+        } catch (IOException e) {
+            LOGGER.severe(e.getMessage());
+            return false;
+        }
+
+        File rtcFile = SamplesRunner.sampleRuntimeConfig("Samples.map.rtc");
+        File packageFile = new File(SamplesRunner.samplePackagePath());
+        for (int run = 1; run <= 2; run++) {
+            Task task = SamplesRunner.sampleTask("Samples.map.rtc");
+            Job job = executor.submitIfChanged(getConnectionBuilder(), cxn, task, rtcFile, packageFile, SamplesRunner.sampleMacros());
+            if (job == null) {
+                LOGGER.log(Level.INFO, "Run {0} skipped, inputs unchanged", run);
+                continue;
+            }
+            if (!reportResult(job, cxn, task, rtcFile))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobServiceReturnCode;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs tasks synchronously, skipping any task whose inputs and configuration
+ * have the same fingerprint as its last successful run and whose target files
+ * are still present.  Only tasks whose inputs and outputs are all described by
+ * the datasets of their runtime configuration are ever skipped; a process,
+ * for example, reads files the runtime configuration doesn't name.
+ */
+public class IncrementalExecutor
+{
+    private static final Logger logger = LogUtil.getLogger(IncrementalExecutor.class);
+
+    private final RunLedger ledger;
+    private final InputFingerprint fingerprint;
+
+    /**
+     * @param ledgerFile file used to record successful runs
+     * @param hashContent true to checksum the contents of input files rather
+     * than relying on their size and modification time alone
+     * @throws IOException if an existing ledger can't be read
+     */
+    public IncrementalExecutor(File ledgerFile, boolean hashContent) throws IOException {
+        this.ledger = new RunLedger(ledgerFile);
+        this.fingerprint = new InputFingerprint(hashContent);
+    }
+
+    /**
+     * Submit a task synchronously unless it is up to date
+     * @param cxnBuilder builder the connection was created with
+     * @param cxn connection used to submit the task
+     * @param task task built from the runtime configuration
+     * @param rtcFile runtime configuration the task was built from
+     * @param packageFile package containing the task's entry point
+     * @param macros macros applied to the task, used to resolve dataset file names
+     * @return the finished job, or null if the task was skipped
+     * @throws SDKException if the task can't be submitted
+     */
+    public Job submitIfChanged(ConnectionBuilder cxnBuilder, ExecutionConnection cxn, Task task, File rtcFile, File packageFile, MacroSet macros)
+            throws SDKException {
+        String key = null;
+        String current = null;
+        try {
+            RuntimeConfigFile rtc = RuntimeConfigFile.read(rtcFile);
+            String entryPoint = task.getEntryPoint() != null ? task.getEntryPoint() : rtc.getEntryPoint();
+            if (canSkip(rtc, entryPoint, macros)) {
+                key = InputFingerprint.key(rtcFile, entryPoint, macros);
+                current = fingerprint.compute(rtc, entryPoint, packageFile, macros);
+                if (current.equals(ledger.lastSuccess(key)) && targetsExist(rtc, macros)) {
+                    logger.log(Level.INFO, "Skipping task {0}: inputs unchanged since last successful run",
+                            task.getTaskName());
+                    return null;
+                }
+            }
+            else {
+                logger.log(Level.INFO, "Running task {0}: its inputs can't be determined from {1}",
+                        new Object[]{task.getTaskName(), rtcFile.getName()});
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to fingerprint {0}, running task: {1}",
+                    new Object[]{rtcFile.getName(), e.getMessage()});
+        }
+
+        Job job = cxnBuilder.submit(cxn, task);
+        if (current != null && job.getJobStatus() == JobStatusCode.FINISHED_OK
+                && job.getResult().getServiceReturnCode() == JobServiceReturnCode.SUCCEEDED) {
+            try {
+                ledger.recordSuccess(key, current);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to record successful run of {0}: {1}",
+                        new Object[]{rtcFile.getName(), e.getMessage()});
+            }
+        }
+        return job;
+    }
+
+    /**
+     * @param rtc runtime configuration of the task
+     * @param entryPoint entry point the task runs
+     * @param macros macros applied to the task
+     * @return true if the task runs the runtime configuration's own entry
+     * point and its SOURCE and TARGET datasets name the files it reads and writes
+     */
+    static boolean canSkip(RuntimeConfigFile rtc, String entryPoint, MacroSet macros) {
+        return entryPoint != null && entryPoint.equals(rtc.getEntryPoint())
+                && !rtc.datasetFiles(RuntimeConfigFile.SOURCE, macros).isEmpty()
+                && !rtc.datasetFiles(RuntimeConfigFile.TARGET, macros).isEmpty();
+    }
+
+    private static boolean targetsExist(RuntimeConfigFile rtc, MacroSet macros) {
+        for (File target : rtc.datasetFiles(RuntimeConfigFile.TARGET, macros)) {
+            if (!target.exists())
+                return false;
+        }
+        return true;
+    }
+}
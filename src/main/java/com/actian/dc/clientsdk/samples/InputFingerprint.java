@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes a fingerprint of everything that determines the outcome of running
+ * a runtime configuration: the configuration itself, the entry point run, the
+ * macros applied to it, the package (djar) containing its entry point and the
+ * files read by its SOURCE datasets.  Files are identified by size and modification time, and
+ * optionally by a CRC32C checksum of their contents for when modification
+ * times can't be trusted.
+ */
+class InputFingerprint
+{
+    // Large files are checksummed through memory mapped windows of this size
+    private static final long WINDOW = 64L * 1024 * 1024;
+
+    private final boolean hashContent;
+
+    /**
+     * @param hashContent true to include a checksum of the contents of each
+     * input file, false to rely on size and modification time alone
+     */
+    InputFingerprint(boolean hashContent) {
+        this.hashContent = hashContent;
+    }
+
+    /**
+     * Key under which the runs of a task are recorded.  Tasks built from the
+     * same runtime configuration but run with a different entry point or
+     * different macros are different tasks.
+     * @param rtcFile runtime configuration of the task
+     * @param entryPoint entry point the task runs
+     * @param macros macros applied to the task
+     * @return the key
+     */
+    static String key(File rtcFile, String entryPoint, MacroSet macros) {
+        MessageDigest digest = sha256();
+        updateMacros(digest, macros);
+        return rtcFile.getAbsolutePath() + "|" + entryPoint + "|" + hex(digest.digest()).substring(0, 16);
+    }
+
+    /**
+     * @param rtc runtime configuration of the task
+     * @param entryPoint entry point the task runs
+     * @param packageFile package containing the entry point, may be null
+     * @param macros macros applied to the task
+     * @return hex encoded fingerprint
+     * @throws IOException if an input file can't be read
+     */
+    String compute(RuntimeConfigFile rtc, String entryPoint, File packageFile, MacroSet macros) throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, "rtc", rtc.getText());
+        update(digest, "entryPoint", String.valueOf(entryPoint));
+        updateMacros(digest, macros);
+        if (packageFile != null)
+            update(digest, "package", describe(packageFile));
+        for (File source : rtc.datasetFiles(RuntimeConfigFile.SOURCE, macros)) {
+            update(digest, "source", describe(source));
+        }
+        return hex(digest.digest());
+    }
+
+    private static void updateMacros(MessageDigest digest, MacroSet macros) {
+        for (Map.Entry<String, String> macro : new TreeMap<>(macros.asMap()).entrySet()) {
+            update(digest, "macro", macro.getKey() + "=" + macro.getValue());
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private String describe(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        if (!file.isFile())
+            return path + ":missing";
+        String description = path + ":" + file.length() + ":" + file.lastModified();
+        if (hashContent)
+            description += ":" + Long.toHexString(checksum(file));
+        return description;
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += WINDOW) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, size - offset));
+                crc.update(window);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void update(MessageDigest digest, String kind, String value) {
+        digest.update(kind.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)0);
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)0);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
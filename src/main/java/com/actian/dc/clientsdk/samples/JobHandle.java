@@ -0,0 +1,244 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobListener;
+import com.pervasive.di.client.sdk.JobProgress;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handle to a job submitted asynchronously, which completes when the job ends
+ * and which can cancel the job.  Cancelling, either explicitly, because the
+ * job's deadline passed or because the waiting thread was interrupted, asks
+ * the engine to abort the job and completes the handle with ABORTED straight
+ * away, so the caller never waits on a stuck job.
+ * <p>
+ * Release hooks registered with onRelease() run exactly once, when the job
+ * ends or is cancelled, and are used to give back scheduler and in-flight
+ * slots held for the job.
+ */
+public class JobHandle implements JobListener
+{
+    private static final Logger logger = LogUtil.getLogger(JobHandle.class);
+
+    private final ExecutionConnection cxn;
+    private final JobListener delegate;
+    private final CompletableFuture<JobStatusCode> completion = new CompletableFuture<>();
+    private final List<Runnable> releaseHooks = new ArrayList<>();
+    private boolean released = false;
+    private volatile boolean deadlineMissed = false;
+    private volatile Job job;
+
+    private JobHandle(ExecutionConnection cxn, JobListener delegate) {
+        this.cxn = cxn;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Submit a task asynchronously
+     * @param cxn connection used to submit the task
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @param delegate listener which also receives the job's progress events, may be null
+     * @return JobHandle for the submitted job
+     * @throws SDKException if the task can't be submitted
+     */
+    public static JobHandle submit(ExecutionConnection cxn, Task task, JobListener delegate) throws SDKException {
+        return submit(null, cxn, task, delegate);
+    }
+
+    /**
+     * Submit a task asynchronously, counting the job against the connection's
+     * engine until the handle completes
+     * @param cxnBuilder builder the connection was created with, may be null
+     * @param cxn connection used to submit the task
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @param delegate listener which also receives the job's progress events, may be null
+     * @return JobHandle for the submitted job
+     * @throws SDKException if the task can't be submitted
+     */
+    public static JobHandle submit(ConnectionBuilder cxnBuilder, ExecutionConnection cxn, Task task,
+            JobListener delegate) throws SDKException {
+        return submit(cxnBuilder, cxn, task, null, delegate);
+    }
+
+    /**
+     * Submit a task asynchronously, counting the job against the connection's
+     * engine until the handle completes
+     * @param cxnBuilder builder the connection was created with, may be null
+     * @param cxn connection used to submit the task
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @param rtcFile runtime configuration the task was built from, named on
+     * the job's trace span, may be null
+     * @param delegate listener which also receives the job's progress events, may be null
+     * @return JobHandle for the submitted job
+     * @throws SDKException if the task can't be submitted
+     */
+    public static JobHandle submit(ConnectionBuilder cxnBuilder, ExecutionConnection cxn, Task task,
+            File rtcFile, JobListener delegate) throws SDKException {
+        JobHandle handle = new JobHandle(cxn, delegate);
+        if (cxnBuilder != null) {
+            cxnBuilder.jobSubmitted(cxn);
+            handle.onRelease(() -> cxnBuilder.jobEnded(cxn));
+        }
+        try {
+            handle.job = cxn.submit(task, JobTracer.get().trace(task, rtcFile, handle));
+        } catch (SDKException | RuntimeException e) {
+            handle.release();
+            throw e;
+        }
+        return handle;
+    }
+
+    /**
+     * @return the submitted job
+     */
+    public Job getJob() {
+        return job;
+    }
+
+    /**
+     * @return future completed with the job's final status, never completed
+     * exceptionally; a task that can't be submitted fails in submit()
+     */
+    public CompletableFuture<JobStatusCode> completion() {
+        return completion;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * @return true if await() cancelled the job because it missed its
+     * deadline, rather than the job ending ABORTED for some other reason
+     */
+    public boolean isDeadlineMissed() {
+        return deadlineMissed;
+    }
+
+    /**
+     * Register an action to run once the job has ended or been cancelled.  If
+     * that has already happened, the action runs immediately.
+     * @param hook the action
+     * @return this instance
+     */
+    public JobHandle onRelease(Runnable hook) {
+        boolean runNow;
+        synchronized (releaseHooks) {
+            runNow = released;
+            if (!runNow)
+                releaseHooks.add(hook);
+        }
+        if (runNow)
+            hook.run();
+        return this;
+    }
+
+    @Override
+    public void jobProgress(JobProgress progress) {
+        if (delegate != null)
+            delegate.jobProgress(progress);
+        JobStatusCode status = progress.getJobStatusCode();
+        if (status == JobStatusCode.FINISHED_OK || status == JobStatusCode.FINISHED_ERROR
+                || status == JobStatusCode.ABORTED) {
+            complete(status);
+        }
+    }
+
+    /**
+     * Wait for the job to end, cancelling it if it doesn't end before the
+     * deadline or if the calling thread is interrupted.  The interrupt status
+     * of the calling thread is preserved.
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return the final status of the job, ABORTED if it was cancelled
+     */
+    public JobStatusCode await(long timeout, TimeUnit unit) {
+        try {
+            return completion.get(timeout, unit);
+        } catch (TimeoutException e) {
+            logger.log(Level.WARNING, "Job {0} missed its deadline, cancelling", jobId());
+            if (cancel())
+                deadlineMissed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Interrupted while waiting for job {0}, cancelling", jobId());
+            cancel();
+        } catch (ExecutionException e) {
+            // completion is only ever completed with a status
+            throw new IllegalStateException(e);
+        }
+        return completion.getNow(JobStatusCode.ABORTED);
+    }
+
+    /**
+     * Ask the engine to abort the job and complete this handle with ABORTED.
+     * Has no effect if the job has already ended.
+     * @return true if the job was cancelled by this call
+     */
+    public boolean cancel() {
+        if (completion.isDone())
+            return false;
+        Job current = job;
+        if (current != null) {
+            try {
+                cxn.abort(current);
+            } catch (SDKException | RuntimeException e) {
+                logger.log(Level.WARNING, "Unable to abort job {0}: {1}", new Object[]{jobId(), e.getMessage()});
+            }
+        }
+        return complete(JobStatusCode.ABORTED);
+    }
+
+    private boolean complete(JobStatusCode status) {
+        boolean completed = completion.complete(status);
+        if (completed)
+            release();
+        return completed;
+    }
+
+    private void release() {
+        List<Runnable> hooks;
+        synchronized (releaseHooks) {
+            if (released)
+                return;
+            released = true;
+            hooks = new ArrayList<>(releaseHooks);
+            releaseHooks.clear();
+        }
+        for (Runnable hook : hooks) {
+            hook.run();
+        }
+    }
+
+    private String jobId() {
+        Job current = job;
+        return current == null ? "(not submitted)" : current.getJobId();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace span covering the life of a job, from submission to the end of the
+ * job, modelled on OpenTelemetry spans.  The queued, running and ended
+ * transitions are recorded as span events.  Times are in nanoseconds since
+ * the epoch.
+ */
+public class JobSpan
+{
+    private final String traceId;
+    private final String spanId;
+    private final String name;
+    private final long startNanos;
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private final List<String> eventNames = new ArrayList<>();
+    private final List<Long> eventTimes = new ArrayList<>();
+    private long endNanos;
+
+    JobSpan(String name) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.traceId = hex(random.nextLong()) + hex(random.nextLong());
+        this.spanId = hex(random.nextLong());
+        this.name = name;
+        this.startNanos = nowNanos();
+    }
+
+    synchronized JobSpan attribute(String key, String value) {
+        if (value != null)
+            attributes.put(key, value);
+        return this;
+    }
+
+    synchronized void event(String eventName) {
+        eventNames.add(eventName);
+        eventTimes.add(nowNanos());
+    }
+
+    /**
+     * Record an event unless it repeats the last one
+     * @param eventName name of the event
+     * @return true if the event was recorded
+     */
+    synchronized boolean transition(String eventName) {
+        if (!eventNames.isEmpty() && eventNames.get(eventNames.size() - 1).equals(eventName))
+            return false;
+        event(eventName);
+        return true;
+    }
+
+    synchronized boolean end() {
+        if (endNanos != 0)
+            return false;
+        endNanos = nowNanos();
+        return true;
+    }
+
+    synchronized boolean isEnded() {
+        return endNanos != 0;
+    }
+
+    /**
+     * @return the span as a single line of JSON, loosely following the
+     * OpenTelemetry span data model
+     */
+    synchronized String toJson() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"traceId\":\"").append(traceId)
+          .append("\",\"spanId\":\"").append(spanId)
+          .append("\",\"name\":").append(quote(name))
+          .append(",\"startTimeUnixNano\":").append(startNanos)
+          .append(",\"endTimeUnixNano\":").append(endNanos)
+          .append(",\"attributes\":{");
+        boolean first = true;
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            if (!first)
+                sb.append(',');
+            first = false;
+            sb.append(quote(attribute.getKey())).append(':').append(quote(attribute.getValue()));
+        }
+        sb.append("},\"events\":[");
+        for (int i = 0; i < eventNames.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"name\":").append(quote(eventNames.get(i)))
+              .append(",\"timeUnixNano\":").append(eventTimes.get(i)).append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static long nowNanos() {
+        java.time.Instant now = java.time.Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    private static String hex(long value) {
+        return String.format("%016x", value);
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"': sb.append("\\\""); break;
+            case '\\': sb.append("\\\\"); break;
+            case '\n': sb.append("\\n"); break;
+            case '\r': sb.append("\\r"); break;
+            case '\t': sb.append("\\t"); break;
+            default:
+                if (c < 0x20)
+                    sb.append(String.format("\\u%04x", (int)c));
+                else
+                    sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.util.Locale;
+
+/**
+ * Data volume and timing of a single job.  Counts that could not be
+ * determined are reported as -1.
+ */
+public class JobStats
+{
+    private final String packageName;
+    private final String entryPoint;
+    private final long recordsRead;
+    private final long recordsWritten;
+    private final long rejects;
+    private final long sourceBytes;
+    private final long targetBytes;
+    private final long elapsedMillis;
+
+    JobStats(String packageName, String entryPoint, long recordsRead, long recordsWritten, long rejects,
+            long sourceBytes, long targetBytes, long elapsedMillis) {
+        this.packageName = packageName;
+        this.entryPoint = entryPoint;
+        this.recordsRead = recordsRead;
+        this.recordsWritten = recordsWritten;
+        this.rejects = rejects;
+        this.sourceBytes = sourceBytes;
+        this.targetBytes = targetBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getEntryPoint() {
+        return entryPoint;
+    }
+
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    public long getRejects() {
+        return rejects;
+    }
+
+    public long getSourceBytes() {
+        return sourceBytes;
+    }
+
+    public long getTargetBytes() {
+        return targetBytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return records read per second, or -1 if either the record count or
+     * the elapsed time is unknown
+     */
+    public double getRowsPerSecond() {
+        if (recordsRead < 0 || elapsedMillis <= 0)
+            return -1;
+        return recordsRead * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s %s: read=%d written=%d rejects=%d sourceBytes=%d targetBytes=%d elapsedMs=%d rows/s=%.1f",
+                packageName, entryPoint, recordsRead, recordsWritten, rejects, sourceBytes, targetBytes,
+                elapsedMillis, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Aggregates JobStats per package and entry point so that maps whose
+ * throughput degraded stand out.
+ */
+public class JobStatsCollector
+{
+    private static final Logger logger = LogUtil.getLogger(JobStatsCollector.class);
+
+    private final Map<String, Aggregate> aggregates = new TreeMap<>();
+
+    public synchronized void add(JobStats stats) {
+        String key = stats.getPackageName() + " " + stats.getEntryPoint();
+        aggregates.computeIfAbsent(key, k -> new Aggregate(k)).add(stats);
+    }
+
+    /**
+     * @return a copy of the aggregates, ordered by package and entry point
+     */
+    public synchronized List<Aggregate> getAggregates() {
+        List<Aggregate> copy = new ArrayList<>();
+        for (Aggregate aggregate : aggregates.values()) {
+            copy.add(aggregate.copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Log one line per package and entry point
+     */
+    public void log() {
+        for (Aggregate aggregate : getAggregates()) {
+            logger.log(Level.INFO, "{0}", aggregate);
+        }
+    }
+
+    /**
+     * Totals for the jobs of a single package and entry point
+     */
+    public static class Aggregate
+    {
+        private final String key;
+        private long jobs;
+        private long recordsRead;
+        private long recordsWritten;
+        private long rejects;
+        private long sourceBytes;
+        private long targetBytes;
+        private long elapsedMillis;
+        private long timedRecords;
+        private double minRowsPerSecond = Double.MAX_VALUE;
+        private double maxRowsPerSecond = 0;
+
+        Aggregate(String key) {
+            this.key = key;
+        }
+
+        void add(JobStats stats) {
+            jobs++;
+            recordsRead += Math.max(0, stats.getRecordsRead());
+            recordsWritten += Math.max(0, stats.getRecordsWritten());
+            rejects += Math.max(0, stats.getRejects());
+            sourceBytes += Math.max(0, stats.getSourceBytes());
+            targetBytes += Math.max(0, stats.getTargetBytes());
+            double rate = stats.getRowsPerSecond();
+            if (rate >= 0) {
+                elapsedMillis += stats.getElapsedMillis();
+                timedRecords += stats.getRecordsRead();
+                minRowsPerSecond = Math.min(minRowsPerSecond, rate);
+                maxRowsPerSecond = Math.max(maxRowsPerSecond, rate);
+            }
+        }
+
+        Aggregate copy() {
+            Aggregate copy = new Aggregate(key);
+            copy.jobs = jobs;
+            copy.recordsRead = recordsRead;
+            copy.recordsWritten = recordsWritten;
+            copy.rejects = rejects;
+            copy.sourceBytes = sourceBytes;
+            copy.targetBytes = targetBytes;
+            copy.elapsedMillis = elapsedMillis;
+            copy.timedRecords = timedRecords;
+            copy.minRowsPerSecond = minRowsPerSecond;
+            copy.maxRowsPerSecond = maxRowsPerSecond;
+            return copy;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getJobs() {
+            return jobs;
+        }
+
+        public long getRecordsRead() {
+            return recordsRead;
+        }
+
+        public long getRecordsWritten() {
+            return recordsWritten;
+        }
+
+        public long getRejects() {
+            return rejects;
+        }
+
+        /**
+         * @return records read per second over all timed jobs, or -1 if no
+         * job had both a record count and an elapsed time
+         */
+        public double getRowsPerSecond() {
+            return elapsedMillis <= 0 ? -1 : timedRecords * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            boolean timed = elapsedMillis > 0;
+            return String.format(Locale.ROOT, "%s: jobs=%d read=%d written=%d rejects=%d sourceBytes=%d targetBytes=%d rows/s=%.1f (min %.1f, max %.1f)",
+                    key, jobs, recordsRead, recordsWritten, rejects, sourceBytes, targetBytes,
+                    getRowsPerSecond(), timed ? minRowsPerSecond : -1.0, timed ? maxRowsPerSecond : -1.0);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Derives JobStats from a finished job's log and runtime configuration.
+ * <p>
+ * Record counts are taken from the transformation summary lines of the job
+ * log; a process that runs several transformations has their counts summed.
+ * The elapsed time is taken from the log's elapsed/execution time line, or
+ * failing that from the first and last timestamps in the log.  Source and
+ * target sizes are the sizes of the files used by the SOURCE and TARGET
+ * datasets of the runtime configuration, when one is known.
+ * <p>
+ * The summary line formats matched here ("Records read: 1,000", "Elapsed
+ * time: 00:00:01.582" and similar) are assumed rather than taken from a
+ * specification of the engine's log.  When a non-empty log matches none of
+ * them the statistic is reported as -1 and a warning is logged, the first
+ * time only, so that a different log layout is noticed.
+ */
+public class JobStatsExtractor
+{
+    private static final Logger logger = LogUtil.getLogger(JobStatsExtractor.class);
+
+    private final AtomicBoolean warned = new AtomicBoolean();
+
+    // the label must end at a word boundary, so that a file name such as
+    // rejects2019.txt is not taken for a count
+    private static final String COUNT = "\\b\\s*[:=]?\\s*(\\d[\\d,]*)";
+    private static final Pattern[] READ = {
+        Pattern.compile("(?i)records?\\s+read" + COUNT),
+        Pattern.compile("(?i)read\\s+(\\d[\\d,]*)\\s+records?")
+    };
+    private static final Pattern[] WRITTEN = {
+        Pattern.compile("(?i)records?\\s+(?:written|inserted)" + COUNT),
+        Pattern.compile("(?i)(?:wrote|written|inserted)\\s+(\\d[\\d,]*)\\s+records?")
+    };
+    private static final Pattern[] REJECTS = {
+        Pattern.compile("(?i)(?:records?\\s+)?reject(?:ed|s)?(?:\\s+records?)?" + COUNT)
+    };
+    private static final Pattern ELAPSED_HMS =
+            Pattern.compile("(?i)(?:elapsed|execution|run)\\s+time\\s*[:=]?\\s*(\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+    private static final Pattern ELAPSED_UNITS =
+            Pattern.compile("(?i)(?:elapsed|execution|run)\\s+time\\s*[:=]?\\s*(\\d+(?:\\.\\d+)?)\\s*(ms|milliseconds?|s|secs?|seconds?)\\b");
+    private static final Pattern TIMESTAMP =
+            Pattern.compile("(\\d{4}-\\d{2}-\\d{2})[ T](\\d{2}:\\d{2}:\\d{2})(?:[.,](\\d{1,3}))?");
+
+    /**
+     * @param task the task that was executed
+     * @param log the job log returned by ExecutionConnection.getLog
+     * @param rtcFile runtime configuration the task was built from, may be null
+     * @param macros macros used to resolve dataset file names
+     * @return JobStats instance
+     */
+    public JobStats extract(Task task, String log, File rtcFile, MacroSet macros) {
+        String text = log == null ? "" : log;
+        long sourceBytes = -1;
+        long targetBytes = -1;
+        if (rtcFile != null) {
+            try {
+                RuntimeConfigFile rtc = RuntimeConfigFile.read(rtcFile);
+                sourceBytes = totalSize(rtc.datasetFiles(RuntimeConfigFile.SOURCE, macros));
+                targetBytes = totalSize(rtc.datasetFiles(RuntimeConfigFile.TARGET, macros));
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to read {0}: {1}", new Object[]{rtcFile, e.getMessage()});
+            }
+        }
+        long read = sum(text, READ);
+        long written = sum(text, WRITTEN);
+        long elapsed = elapsedMillis(text);
+        if (!text.trim().isEmpty() && (read < 0 || written < 0 || elapsed < 0))
+            unrecognised(task, read, written, elapsed);
+        return new JobStats(task == null ? null : task.getPackageName(),
+                task == null ? null : task.getEntryPoint(),
+                read, written, sum(text, REJECTS),
+                sourceBytes, targetBytes, elapsed);
+    }
+
+    private void unrecognised(Task task, long read, long written, long elapsed) {
+        List<String> missing = new ArrayList<>();
+        if (read < 0)
+            missing.add("records read");
+        if (written < 0)
+            missing.add("records written");
+        if (elapsed < 0)
+            missing.add("elapsed time");
+        String name = task == null ? "job" : task.getTaskName();
+        Level level = warned.compareAndSet(false, true) ? Level.WARNING : Level.FINE;
+        logger.log(level, "Log format of {0} not recognised, no {1} found; reporting -1",
+                new Object[]{name, String.join(", ", missing)});
+    }
+
+    private static long sum(String text, Pattern[] patterns) {
+        for (Pattern pattern : patterns) {
+            Matcher m = pattern.matcher(text);
+            long total = -1;
+            while (m.find()) {
+                total = Math.max(total, 0) + Long.parseLong(m.group(1).replace(",", ""));
+            }
+            if (total >= 0)
+                return total;
+        }
+        return -1;
+    }
+
+    static long elapsedMillis(String text) {
+        Matcher m = ELAPSED_HMS.matcher(text);
+        if (m.find()) {
+            double seconds = Long.parseLong(m.group(1)) * 3600 + Long.parseLong(m.group(2)) * 60
+                    + Double.parseDouble(m.group(3));
+            return Math.round(seconds * 1000);
+        }
+        m = ELAPSED_UNITS.matcher(text);
+        if (m.find()) {
+            double value = Double.parseDouble(m.group(1));
+            return Math.round(m.group(2).toLowerCase(Locale.ROOT).startsWith("m") ? value : value * 1000);
+        }
+
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        m = TIMESTAMP.matcher(text);
+        while (m.find()) {
+            try {
+                String millis = m.group(3) == null ? "000" : (m.group(3) + "00").substring(0, 3);
+                LocalDateTime time = LocalDateTime.parse(m.group(1) + "T" + m.group(2) + "." + millis,
+                        DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                if (first == null)
+                    first = time;
+                last = time;
+            } catch (DateTimeParseException e) {
+                // not a timestamp after all
+            }
+        }
+        return first == null ? -1 : first.until(last, ChronoUnit.MILLIS);
+    }
+
+    private static long totalSize(List<File> files) {
+        if (files.isEmpty())
+            return -1;
+        long total = 0;
+        for (File file : files) {
+            if (file.isFile())
+                total += file.length();
+        }
+        return total;
+    }
+}
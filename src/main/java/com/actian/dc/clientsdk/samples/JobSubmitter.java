@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+
+/**
+ * Asynchronous submission of tasks, used by the LoadGenerator so the same
+ * workload can be driven against real engines or a stand-in.
+ */
+public interface JobSubmitter
+{
+    /**
+     * Callback invoked when a submitted job ends
+     */
+    interface Completion
+    {
+        /**
+         * @param ok true if the job finished successfully
+         */
+        void done(boolean ok);
+    }
+
+    /**
+     * Submit a task without waiting for it to run
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @param completion called once the job ends
+     * @throws SDKException if the task can't be submitted
+     */
+    void submit(Task task, Completion completion) throws SDKException;
+
+    /**
+     * Release the resources held by the submitter
+     */
+    void close();
+}
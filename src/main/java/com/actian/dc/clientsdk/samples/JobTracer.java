@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.JobListener;
+import com.pervasive.di.client.sdk.JobProgress;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Produces a JobSpan per sampled job and exports it to a FileSpanExporter
+ * when the job ends.  Tracing is configured with the settings:
+ * <pre>
+ * trace.enabled=true
+ * trace.file=&lt;work.root&gt;/traces.jsonl
+ * trace.sampleRatio=1.0
+ * </pre>
+ * Jobs that are not sampled are submitted with their listener unwrapped, so
+ * a low sample ratio keeps the overhead negligible at high job rates.  A
+ * listener shared by many jobs can trace them without a wrapper per job by
+ * calling start() and record() itself.
+ */
+public class JobTracer
+{
+    static final String TRACE_FILE_NAME = "traces.jsonl";
+
+    private static JobTracer instance;
+
+    private final FileSpanExporter exporter;
+    private final double sampleRatio;
+    private volatile boolean closed = false;
+
+    JobTracer(FileSpanExporter exporter, double sampleRatio) {
+        this.exporter = exporter;
+        this.sampleRatio = sampleRatio;
+    }
+
+    /**
+     * @return the tracer configured from the samples configuration
+     */
+    public static synchronized JobTracer get() {
+        if (instance == null) {
+            SamplesConfig config = SamplesConfig.load();
+            if (config.getBoolean("trace.enabled", true)) {
+                String file = config.getString("trace.file", null);
+                instance = new JobTracer(
+                        new FileSpanExporter(file == null ? new File(config.getWorkRoot(), TRACE_FILE_NAME) : new File(file)),
+                        Double.parseDouble(config.getString("trace.sampleRatio", "1.0")));
+            }
+            else {
+                instance = new JobTracer(null, 0);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Wrap the listener a task is about to be submitted with so that the
+     * job's progress is traced.  Call immediately before submitting.
+     * @param task the task being submitted
+     * @param delegate the listener that receives the job's progress events
+     * @return a tracing listener, or the delegate itself if the job is not sampled
+     */
+    public JobListener trace(Task task, JobListener delegate) {
+        return trace(task, null, delegate);
+    }
+
+    /**
+     * Wrap the listener a task is about to be submitted with so that the
+     * job's progress is traced, naming the runtime configuration the task was
+     * built from on its span.  Call immediately before submitting.
+     * @param task the task being submitted
+     * @param rtcFile runtime configuration the task was built from, may be null
+     * @param delegate the listener that receives the job's progress events
+     * @return a tracing listener, or the delegate itself if the job is not sampled
+     */
+    public JobListener trace(Task task, File rtcFile, JobListener delegate) {
+        JobSpan span = start(task, rtcFile);
+        return span == null ? delegate : new TracingListener(span, delegate);
+    }
+
+    /**
+     * Start the span of a task about to be submitted, for a listener that
+     * passes the job's progress to record() itself.  Call immediately before
+     * submitting.
+     * @param task the task being submitted
+     * @param rtcFile runtime configuration the task was built from, may be null
+     * @return the span, or null if the job is not sampled
+     */
+    JobSpan start(Task task, File rtcFile) {
+        if (exporter == null || closed || ThreadLocalRandom.current().nextDouble() >= sampleRatio)
+            return null;
+        JobSpan span = new JobSpan("job " + task.getTaskName());
+        span.attribute("dc.package", task.getPackageName())
+            .attribute("dc.entry_point", task.getEntryPoint())
+            .attribute("dc.rtc", rtcFile == null ? null : rtcFile.getName())
+            .attribute("dc.task", task.getTaskName());
+        span.event("submit");
+        return span;
+    }
+
+    /**
+     * Record a job's change of status on its span, exporting the span when
+     * the job ends.  Repeated statuses are ignored.
+     * @param span span returned by start()
+     * @param jobId ID of the job
+     * @param status status reported by the job's progress event
+     */
+    void record(JobSpan span, String jobId, JobStatusCode status) {
+        if (status == null)
+            return;
+        String event;
+        switch (status) {
+        case QUEUED:
+            event = "queued";
+            break;
+        case RUNNING:
+            event = "running";
+            break;
+        case FINISHED_OK:
+        case FINISHED_ERROR:
+        case ABORTED:
+            event = "ended";
+            break;
+        default:
+            return;
+        }
+        if (!span.transition(event))
+            return;
+        span.attribute("dc.job_id", jobId);
+        if (event.equals("ended")) {
+            span.attribute("dc.status", status.toString());
+            if (span.end() && !closed)
+                exporter.export(span);
+        }
+    }
+
+    /**
+     * Write the spans still queued and stop the exporter.  Jobs that end
+     * after the tracer is closed are not exported, and jobs submitted after
+     * it are not traced.  Call before the application exits.
+     */
+    public void close() {
+        closed = true;
+        if (exporter != null)
+            exporter.close();
+    }
+
+    private class TracingListener implements JobListener
+    {
+        private final JobSpan span;
+        private final JobListener delegate;
+
+        TracingListener(JobSpan span, JobListener delegate) {
+            this.span = span;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void jobProgress(JobProgress progress) {
+            record(span, progress.getJobId(), progress.getJobStatusCode());
+            if (delegate != null)
+                delegate.jobProgress(progress);
+        }
+    }
+}
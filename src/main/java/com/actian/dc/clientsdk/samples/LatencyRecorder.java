@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe, fixed size histogram of latencies in microseconds.  Values
+ * below 64 are recorded exactly; larger values are recorded in log-linear
+ * buckets with 32 sub-buckets per power of two, so any reported percentile is
+ * within about 3% of the true value.
+ */
+public class LatencyRecorder
+{
+    private static final int EXACT = 64;
+    private static final int SUB_BUCKETS = 32;
+    private static final int BUCKETS = EXACT + (63 - 6) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param micros latency in microseconds
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(index(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMaxMicros() {
+        return max.get();
+    }
+
+    public double getMeanMicros() {
+        long n = total.get();
+        return n == 0 ? 0 : (double)sum.get() / n;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return the latency in microseconds at or below which the given
+     * percentage of the recorded values fall, 0 if nothing was recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long n = total.get();
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    static int index(long value) {
+        if (value < EXACT)
+            return (int)value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int)(value >>> (exponent - 5)) - SUB_BUCKETS;
+        return EXACT + (exponent - 6) * SUB_BUCKETS + mantissa;
+    }
+
+    static long upperBound(int index) {
+        if (index < EXACT)
+            return index;
+        int exponent = (index - EXACT) / SUB_BUCKETS + 6;
+        int mantissa = (index - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((long)(mantissa + 1) << (exponent - 5)) - 1;
+    }
+}
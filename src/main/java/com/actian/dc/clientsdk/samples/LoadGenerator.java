@@ -0,0 +1,530 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Open-loop load generator.  Tasks are submitted on a schedule fixed in advance
+ * by the target arrival rate, with constant or Poisson (exponentially
+ * distributed) inter-arrival times, regardless of how quickly earlier jobs
+ * complete.  Each arrival is handed to a bounded pool of submission threads,
+ * so a submit that blocks doesn't delay the arrivals after it while a thread
+ * is free.  An arrival which finds every thread busy waits in a bounded
+ * backlog and is counted as delayed; one which finds the backlog full is
+ * dropped and counted.  Latency is measured
+ * from the time a job was scheduled to be submitted rather than the time it
+ * actually was, which corrects for coordinated omission when the client or
+ * engine falls behind.
+ * <p>
+ * With a fixed concurrency the generator runs closed-loop instead: it keeps
+ * that many jobs in flight, submitting a new job as soon as one ends, so that
+ * throughput measures the capacity of the client and engine together.
+ */
+public class LoadGenerator
+{
+    private static final Logger logger = LogUtil.getLogger(LoadGenerator.class);
+
+    /**
+     * Distribution of the time between submissions
+     */
+    public enum Arrival
+    {
+        CONSTANT,
+        POISSON
+    }
+
+    /**
+     * Creates the task for each submission
+     */
+    public interface TaskFactory
+    {
+        /**
+         * @param sequence zero based number of the submission
+         * @return the task to submit
+         * @throws SDKException if the task can't be built
+         */
+        Task create(long sequence) throws SDKException;
+    }
+
+    /**
+     * Load test settings, parsed from key=value command line arguments
+     */
+    public static class Settings
+    {
+        double rate = 1.0;
+        long durationSeconds = 60;
+        int connections = 1;
+        Arrival arrival = Arrival.POISSON;
+        // The sample map and process write the same target file, so the
+        // default mix only runs the map
+        List<String> rtcNames = Arrays.asList("Samples.map.rtc");
+        File outputDir = new File("target/load");
+        long drainSeconds = 300;
+        long seed = System.nanoTime();
+        int concurrency = 0;
+        int submitters = 64;
+        int backlog = 1000;
+
+        /**
+         * Parse settings of the form rate=10 duration=120 connections=4
+         * arrival=poisson|constant rtcs=a.rtc,b.rtc out=target/load drain=300 seed=42.
+         * concurrency=8 runs closed-loop with 8 jobs in flight, ignoring rate and arrival.
+         * submitters=64 backlog=1000 bound the open-loop submission threads and
+         * the arrivals waiting for one.
+         * @param args the arguments
+         * @return Settings instance
+         */
+        public static Settings parse(List<String> args) {
+            Settings settings = new Settings();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0)
+                    throw new IllegalArgumentException("Expected key=value but was " + arg);
+                String key = arg.substring(0, eq).trim();
+                String value = arg.substring(eq + 1).trim();
+                switch (key) {
+                case "rate":
+                    settings.rate = Double.parseDouble(value);
+                    break;
+                case "duration":
+                    settings.durationSeconds = Long.parseLong(value);
+                    break;
+                case "connections":
+                    settings.connections = Integer.parseInt(value);
+                    break;
+                case "arrival":
+                    settings.arrival = Arrival.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "rtcs":
+                    settings.rtcNames = Arrays.asList(value.split(","));
+                    break;
+                case "out":
+                    settings.outputDir = new File(value);
+                    break;
+                case "drain":
+                    settings.drainSeconds = Long.parseLong(value);
+                    break;
+                case "seed":
+                    settings.seed = Long.parseLong(value);
+                    break;
+                case "concurrency":
+                    settings.concurrency = Integer.parseInt(value);
+                    break;
+                case "submitters":
+                    settings.submitters = Integer.parseInt(value);
+                    break;
+                case "backlog":
+                    settings.backlog = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown load setting " + key);
+                }
+            }
+            if (settings.rate <= 0)
+                throw new IllegalArgumentException("rate must be positive but was " + settings.rate);
+            if (settings.durationSeconds <= 0)
+                throw new IllegalArgumentException("duration must be positive but was " + settings.durationSeconds);
+            if (settings.connections < 1)
+                throw new IllegalArgumentException("connections must be at least 1 but was " + settings.connections);
+            if (settings.concurrency < 0)
+                throw new IllegalArgumentException("concurrency must not be negative but was " + settings.concurrency);
+            if (settings.submitters < 1)
+                throw new IllegalArgumentException("submitters must be at least 1 but was " + settings.submitters);
+            if (settings.backlog < 0)
+                throw new IllegalArgumentException("backlog must not be negative but was " + settings.backlog);
+            return settings;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public List<String> getRtcNames() {
+            return rtcNames;
+        }
+
+        public File getOutputDir() {
+            return outputDir;
+        }
+
+        /**
+         * @return number of jobs kept in flight by a closed-loop run, 0 when open-loop
+         */
+        public int getConcurrency() {
+            return concurrency;
+        }
+    }
+
+    private final Settings settings;
+    private final JobSubmitter submitter;
+    private final TaskFactory taskFactory;
+
+    // Latency from the scheduled submission time (corrected) and from the
+    // actual submission time (uncorrected, for comparison)
+    private final LatencyRecorder latency = new LatencyRecorder();
+    private final LatencyRecorder serviceLatency = new LatencyRecorder();
+    // Time the client takes to build and submit each task
+    private final LatencyRecorder submitLatency = new LatencyRecorder();
+    private final Map<Long, Interval> intervals = new ConcurrentSkipListMap<>();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong completedInWindow = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    // Arrivals which waited for a submission thread, and those turned away
+    private final AtomicLong delayed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger pendingSubmits = new AtomicInteger();
+    private long startNanos;
+    private long endNanos;
+    private Semaphore closedLoopSlots;
+
+    public LoadGenerator(Settings settings, JobSubmitter submitter, TaskFactory taskFactory) {
+        this.settings = settings;
+        this.submitter = submitter;
+        this.taskFactory = taskFactory;
+    }
+
+    /**
+     * Run the load test and wait for the submitted jobs to drain
+     * @return the results
+     * @throws InterruptedException if interrupted while running
+     */
+    public Result run() throws InterruptedException {
+        Random random = new Random(settings.seed);
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+        // Closed-loop runs never have more than concurrency submissions pending
+        int threads = settings.concurrency > 0 ? settings.concurrency : settings.submitters;
+        BlockingQueue<Runnable> backlog = settings.backlog > 0
+                ? new ArrayBlockingQueue<>(settings.backlog) : new SynchronousQueue<>();
+        ThreadPoolExecutor submitters = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, backlog, r -> {
+            Thread t = new Thread(r, "load-submit");
+            t.setDaemon(true);
+            return t;
+        });
+        startNanos = System.nanoTime();
+        endNanos = startNanos + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+        try {
+            if (settings.concurrency > 0) {
+                logger.log(Level.INFO, "Starting closed-loop load with {0} job(s) in flight for {1} s over {2} connection(s)",
+                        new Object[]{settings.concurrency, settings.durationSeconds, settings.connections});
+                closedLoopSlots = new Semaphore(settings.concurrency);
+                for (long sequence = 0; ; sequence++) {
+                    long remaining = endNanos - System.nanoTime();
+                    if (remaining <= 0 || !closedLoopSlots.tryAcquire(remaining, TimeUnit.NANOSECONDS))
+                        break;
+                    arrive(submitters, sequence, System.nanoTime());
+                }
+            }
+            else {
+                logger.log(Level.INFO, "Starting {0} load at {1} jobs/s for {2} s over {3} connection(s)",
+                        new Object[]{settings.arrival, settings.rate, settings.durationSeconds, settings.connections});
+                long scheduled = startNanos;
+                for (long sequence = 0; scheduled < endNanos; sequence++) {
+                    sleepUntil(scheduled);
+                    arrive(submitters, sequence, scheduled);
+                    double gap = settings.arrival == Arrival.POISSON
+                            ? -Math.log(1.0 - random.nextDouble()) * meanIntervalNanos
+                            : meanIntervalNanos;
+                    scheduled += (long)gap;
+                }
+            }
+        }
+        finally {
+            submitters.shutdown();
+        }
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.drainSeconds);
+        synchronized (outstanding) {
+            while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+                outstanding.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(drainDeadline - System.nanoTime())));
+            }
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        Result result = new Result(elapsed);
+        result.log();
+        return result;
+    }
+
+    private void arrive(ThreadPoolExecutor submitters, long sequence, long scheduledNanos) {
+        Interval interval = interval(scheduledNanos);
+        boolean waits = pendingSubmits.incrementAndGet() > submitters.getMaximumPoolSize();
+        outstanding.incrementAndGet();
+        try {
+            submitters.execute(() -> {
+                try {
+                    submit(sequence, scheduledNanos, interval);
+                }
+                finally {
+                    pendingSubmits.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingSubmits.decrementAndGet();
+            dropped.incrementAndGet();
+            interval.dropped.incrementAndGet();
+            finished();
+            return;
+        }
+        if (waits) {
+            delayed.incrementAndGet();
+            interval.delayed.incrementAndGet();
+        }
+        interval.submitted.incrementAndGet();
+        submitted.incrementAndGet();
+    }
+
+    private void submit(long sequence, long scheduledNanos, Interval interval) {
+        try {
+            long buildNanos = System.nanoTime();
+            Task task = taskFactory.create(sequence);
+            long submitNanos = System.nanoTime();
+            submitter.submit(task, ok -> completed(scheduledNanos, submitNanos, ok));
+            submitLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - buildNanos));
+        } catch (SDKException | RuntimeException e) {
+            errors.incrementAndGet();
+            interval.errors.incrementAndGet();
+            finished();
+            logger.log(Level.WARNING, "Submission {0} failed: {1}", new Object[]{sequence, e.getMessage()});
+        }
+    }
+
+    private void completed(long scheduledNanos, long submitNanos, boolean ok) {
+        long now = System.nanoTime();
+        long micros = TimeUnit.NANOSECONDS.toMicros(now - scheduledNanos);
+        latency.record(micros);
+        serviceLatency.record(TimeUnit.NANOSECONDS.toMicros(now - submitNanos));
+        Interval interval = interval(now);
+        interval.completed.incrementAndGet();
+        interval.latencySum.addAndGet(micros);
+        interval.latencyMax.accumulateAndGet(micros, Math::max);
+        completed.incrementAndGet();
+        if (now < endNanos)
+            completedInWindow.incrementAndGet();
+        if (!ok) {
+            errors.incrementAndGet();
+            interval.errors.incrementAndGet();
+        }
+        finished();
+    }
+
+    private void finished() {
+        synchronized (outstanding) {
+            if (outstanding.decrementAndGet() == 0)
+                outstanding.notifyAll();
+        }
+        if (closedLoopSlots != null)
+            closedLoopSlots.release();
+    }
+
+    private Interval interval(long nanos) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(nanos - startNanos);
+        return intervals.computeIfAbsent(second, s -> new Interval());
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedException {
+        long remaining = nanos - System.nanoTime();
+        if (remaining > 0)
+            TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+
+    private static class Interval
+    {
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong delayed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong latencySum = new AtomicLong();
+        final AtomicLong latencyMax = new AtomicLong();
+    }
+
+    /**
+     * Results of a load test
+     */
+    public class Result
+    {
+        private final long elapsedNanos;
+
+        Result(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getSubmitted() {
+            return submitted.get();
+        }
+
+        public long getCompleted() {
+            return completed.get();
+        }
+
+        public long getErrors() {
+            return errors.get();
+        }
+
+        /**
+         * @return arrivals which found every submission thread busy and
+         * waited in the backlog
+         */
+        public long getDelayed() {
+            return delayed.get();
+        }
+
+        /**
+         * @return arrivals which were not submitted because the backlog was full
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        /**
+         * @return jobs that had not completed when the drain period ended
+         */
+        public long getIncomplete() {
+            return outstanding.get();
+        }
+
+        /**
+         * @return jobs completed per second while arrivals were being
+         * generated, excluding the drain period
+         */
+        public double getThroughput() {
+            return completedInWindow.get() / (double)settings.durationSeconds;
+        }
+
+        /**
+         * @return time taken by the whole run, including the drain period
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return latency measured from the scheduled submission time
+         */
+        public LatencyRecorder getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return latency measured from the actual submission time
+         */
+        public LatencyRecorder getServiceLatency() {
+            return serviceLatency;
+        }
+
+        /**
+         * @return time the client took to build and submit each task
+         */
+        public LatencyRecorder getSubmitLatency() {
+            return submitLatency;
+        }
+
+        void log() {
+            logger.log(Level.INFO, "Load finished: {0} submitted, {1} completed, {2} errors, {3} incomplete, {4} jobs/s",
+                    new Object[]{getSubmitted(), getCompleted(), getErrors(), getIncomplete(),
+                        String.format(Locale.ROOT, "%.2f", getThroughput())});
+            if (getDelayed() > 0 || getDropped() > 0) {
+                logger.log(Level.WARNING, "{0} arrival(s) waited for a submission thread and {1} were dropped",
+                        new Object[]{getDelayed(), getDropped()});
+            }
+            logger.log(Level.INFO, "Latency ms p50={0} p90={1} p99={2} p99.9={3} max={4}",
+                    new Object[]{ms(latency.getPercentileMicros(50)), ms(latency.getPercentileMicros(90)),
+                        ms(latency.getPercentileMicros(99)), ms(latency.getPercentileMicros(99.9)),
+                        ms(latency.getMaxMicros())});
+        }
+
+        /**
+         * Write the per-second time series as CSV and the summary as JSON to
+         * the output directory
+         * @return the files written
+         * @throws IOException if the files can't be written
+         */
+        public List<File> write() throws IOException {
+            File dir = settings.outputDir;
+            dir.mkdirs();
+            File csv = new File(dir, "load-timeseries.csv");
+            try (PrintWriter out = new PrintWriter(csv, StandardCharsets.UTF_8.name())) {
+                out.println("second,submitted,completed,errors,delayed,dropped,mean_latency_ms,max_latency_ms");
+                for (Map.Entry<Long, Interval> entry : intervals.entrySet()) {
+                    Interval i = entry.getValue();
+                    long n = i.completed.get();
+                    out.printf(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%s,%s%n", entry.getKey(), i.submitted.get(), n,
+                            i.errors.get(), i.delayed.get(), i.dropped.get(),
+                            n == 0 ? "" : ms(i.latencySum.get() / n), n == 0 ? "" : ms(i.latencyMax.get()));
+                }
+            }
+            File json = new File(dir, "load-summary.json");
+            try (PrintWriter out = new PrintWriter(json, StandardCharsets.UTF_8.name())) {
+                out.println("{");
+                out.printf(Locale.ROOT, "  \"arrival\": \"%s\",%n", settings.arrival);
+                out.printf(Locale.ROOT, "  \"targetRate\": %.3f,%n", settings.rate);
+                out.printf(Locale.ROOT, "  \"durationSeconds\": %d,%n", settings.durationSeconds);
+                out.printf(Locale.ROOT, "  \"connections\": %d,%n", settings.connections);
+                out.printf(Locale.ROOT, "  \"concurrency\": %d,%n", settings.concurrency);
+                out.printf(Locale.ROOT, "  \"submitted\": %d,%n", getSubmitted());
+                out.printf(Locale.ROOT, "  \"completed\": %d,%n", getCompleted());
+                out.printf(Locale.ROOT, "  \"errors\": %d,%n", getErrors());
+                out.printf(Locale.ROOT, "  \"incomplete\": %d,%n", getIncomplete());
+                out.printf(Locale.ROOT, "  \"delayed\": %d,%n", getDelayed());
+                out.printf(Locale.ROOT, "  \"dropped\": %d,%n", getDropped());
+                out.printf(Locale.ROOT, "  \"throughput\": %.3f,%n", getThroughput());
+                out.printf(Locale.ROOT, "  \"elapsedSeconds\": %.3f,%n", elapsedNanos / 1e9);
+                out.printf(Locale.ROOT, "  \"latencyMs\": %s,%n", percentiles(latency));
+                out.printf(Locale.ROOT, "  \"uncorrectedLatencyMs\": %s,%n", percentiles(serviceLatency));
+                out.printf(Locale.ROOT, "  \"submitLatencyMs\": %s%n", percentiles(submitLatency));
+                out.println("}");
+            }
+            return new ArrayList<>(Arrays.asList(csv, json));
+        }
+
+        private String percentiles(LatencyRecorder recorder) {
+            return String.format(Locale.ROOT,
+                    "{\"p50\": %s, \"p90\": %s, \"p99\": %s, \"p99.9\": %s, \"max\": %s, \"mean\": %s}",
+                    ms(recorder.getPercentileMicros(50)), ms(recorder.getPercentileMicros(90)),
+                    ms(recorder.getPercentileMicros(99)), ms(recorder.getPercentileMicros(99.9)),
+                    ms(recorder.getMaxMicros()), ms((long)recorder.getMeanMicros()));
+        }
+    }
+
+    private static String ms(long micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+    }
+}
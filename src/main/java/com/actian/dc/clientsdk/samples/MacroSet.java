@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.artifacts.shared.NameValuePair;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable set of macro definitions, compiled once and shared by every Task
+ * it is applied to.  The NameValuePair instances are built when the set is
+ * created and added to every task, which only reads them.  Macro sets can be
+ * layered, for example global macros
+ * overlaid with per-package macros and then per-job overrides, with later
+ * layers taking precedence.
+ */
+public final class MacroSet
+{
+    public static final MacroSet EMPTY = new MacroSet(Collections.emptyMap());
+
+    // $(name) as written in runtime configurations, either literally or URL encoded
+    private static final Pattern REFERENCE = Pattern.compile("(?:\\$|%24)\\(([^)\"]+)\\)");
+    private static final Pattern MACRO_DEFINITIONS = Pattern.compile("\"macroDefinitions\"\\s*:\\s*\\[(.*?)\\]", Pattern.DOTALL);
+    private static final Pattern NAME = Pattern.compile("\"name\"\\s*:\\s*\"([^\"]+)\"");
+
+    private static final int MAX_CACHED = 256;
+
+    // Macro references of the most recently used runtime configurations, by path
+    private static final Map<String, References> referenceCache = new LinkedHashMap<String, References>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, References> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    private final Map<String, String> values;
+    private final List<NameValuePair> pairs;
+
+    private MacroSet(Map<String, String> values) {
+        this.values = Collections.unmodifiableMap(values);
+        List<NameValuePair> list = new ArrayList<>(values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            list.add(new NameValuePair(entry.getKey(), entry.getValue()));
+        }
+        this.pairs = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Compile a macro set from name/value pairs
+     * @param macros macro names and values
+     * @return MacroSet instance
+     */
+    public static MacroSet of(Map<String, String> macros) {
+        if (macros == null || macros.isEmpty())
+            return EMPTY;
+        return new MacroSet(new LinkedHashMap<>(macros));
+    }
+
+    /**
+     * Layer another macro set on top of this one
+     * @param overrides macros which replace or add to the macros in this set
+     * @return a new MacroSet, or this instance if there is nothing to overlay
+     */
+    public MacroSet overlay(MacroSet overrides) {
+        if (overrides == null || overrides.values.isEmpty())
+            return this;
+        if (values.isEmpty())
+            return overrides;
+        Map<String, String> merged = new LinkedHashMap<>(values);
+        merged.putAll(overrides.values);
+        return new MacroSet(merged);
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public boolean contains(String name) {
+        return values.containsKey(name);
+    }
+
+    public String get(String name) {
+        return values.get(name);
+    }
+
+    public Map<String, String> asMap() {
+        return values;
+    }
+
+    /**
+     * Add every macro in this set to a task
+     * @param task com.pervasive.di.client.sdk.Task instance
+     */
+    public void applyTo(Task task) {
+        for (NameValuePair pair : pairs) {
+            task.addMacro(pair);
+        }
+    }
+
+    /**
+     * Replace the $(name) references in a value with the values of this set.
+     * References to unknown macros are left in place.
+     * @param value string containing macro references
+     * @return the resolved string
+     */
+    public String resolve(String value) {
+        if (value == null || value.indexOf('(') < 0)
+            return value;
+        Matcher m = REFERENCE.matcher(value);
+        StringBuffer sb = new StringBuffer();
+        while (m.find()) {
+            String replacement = values.get(m.group(1));
+            m.appendReplacement(sb, Matcher.quoteReplacement(replacement != null ? replacement : m.group()));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Find the macros referenced by a runtime configuration which are neither
+     * defined in this set nor in the configuration's own macro definitions.
+     * @param rtcFile runtime configuration file
+     * @return names of the unresolved macros, empty if every reference resolves
+     */
+    public Set<String> unresolved(File rtcFile) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String name : references(rtcFile)) {
+            if (!values.containsKey(name))
+                missing.add(name);
+        }
+        return missing;
+    }
+
+    private static Set<String> references(File rtcFile) {
+        String path = rtcFile.getAbsolutePath();
+        long length = rtcFile.length();
+        long lastModified = rtcFile.lastModified();
+        References cached;
+        synchronized (referenceCache) {
+            cached = referenceCache.get(path);
+        }
+        if (cached != null && cached.length == length && cached.lastModified == lastModified)
+            return cached.names;
+        // A changed file replaces its previous entry
+        References scanned = new References(length, lastModified, scan(rtcFile));
+        synchronized (referenceCache) {
+            referenceCache.put(path, scanned);
+        }
+        return scanned.names;
+    }
+
+    static int cachedReferenceCount() {
+        synchronized (referenceCache) {
+            return referenceCache.size();
+        }
+    }
+
+    private static Set<String> scan(File rtcFile) {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(rtcFile.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Set<String> referenced = new LinkedHashSet<>();
+        Matcher m = REFERENCE.matcher(text);
+        while (m.find()) {
+            referenced.add(m.group(1));
+        }
+        // Macros defined by the runtime configuration itself always resolve
+        Matcher defs = MACRO_DEFINITIONS.matcher(text);
+        if (defs.find()) {
+            Matcher names = NAME.matcher(defs.group(1));
+            while (names.find()) {
+                referenced.remove(names.group(1));
+            }
+        }
+        return Collections.unmodifiableSet(referenced);
+    }
+
+    private static class References
+    {
+        final long length;
+        final long lastModified;
+        final Set<String> names;
+
+        References(long length, long lastModified, Set<String> names) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.names = names;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs V9 artifacts alongside packaged maps and processes with the
+ * WorkloadScheduler.  Each kind of artifact runs in its own lane with its own
+ * connections, so the packaged map and process jobs aren't queued behind the
+ * slower starting V9 jobs.  The latency of each kind is logged at the end.
+ * <p>
+ * The sample map and process both write the same target file, so their
+ * lanes form a shared target group and run one job at a time between them;
+ * lanes for tasks with distinct targets can run more.
+ */
+public class MixedWorkloadSample implements ConnectionUser
+{
+    private static final Logger LOGGER = LogUtil.getLogger(MixedWorkloadSample.class);
+
+    static final long DEADLINE_MINUTES = 10;
+
+    @Override
+    public boolean supportsLocal() {
+        return true;
+    }
+
+    /**
+     * @see com.actian.dc.clientsdk.samples.ConnectionUser#useConnection(com.actian.dc.clientsdk.samples.ConnectionBuilder) 
+     */
+    @Override
+    public boolean useConnection(ConnectionBuilder cxnBuilder) {
+        Map<WorkloadClass, String> routingKeys = new EnumMap<>(WorkloadClass.class);
+        routingKeys.put(WorkloadClass.V9, V9ExecutionSample.PACKAGE_NAME);
+        routingKeys.put(WorkloadClass.MAP, SamplesRunner.SAMPLE_PACKAGE_NAME);
+        routingKeys.put(WorkloadClass.PROCESS, SamplesRunner.SAMPLE_PACKAGE_NAME);
+        // the sample map and process both write $(samples)/invoices_trg.txt
+        WorkloadScheduler scheduler = new WorkloadScheduler(cxnBuilder, SamplesConfig.load(), routingKeys,
+                Collections.singleton(EnumSet.of(WorkloadClass.MAP, WorkloadClass.PROCESS)));
+        try {
+            List<Task> tasks = new ArrayList<>(V9ExecutionSample.buildTasks());
+            for (int i = 0; i < 3; i++) {
+                tasks.add(SamplesRunner.sampleTask("Samples.map.rtc"));
+                tasks.add(SamplesRunner.sampleTask("Samples.process.rtc"));
+            }
+
+            List<CompletableFuture<Job>> futures = new ArrayList<>();
+            for (Task task : tasks) {
+                LOGGER.log(Level.INFO, "Queueing {0} task {1}", new Object[]{WorkloadClass.of(task), task.getTaskName()});
+                futures.add(scheduler.submit(task));
+            }
+
+            boolean ok = true;
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(DEADLINE_MINUTES);
+            for (int i = 0; i < futures.size(); i++) {
+                Job job = futures.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                LOGGER.log(Level.INFO, "Task {0}: {1}", new Object[]{tasks.get(i).getTaskName(), job.getJobStatus()});
+                ok &= job.getJobStatus() == JobStatusCode.FINISHED_OK;
+            }
+            scheduler.logMetrics();
+            return ok;
+        }
+        catch (SDKException e) {
+            LOGGER.severe(e.getMessage());
+            return false;
+        }
+        catch (ExecutionException e) {
+            LOGGER.severe(e.getCause().getMessage());
+            return false;
+        }
+        catch (TimeoutException e) {
+            LOGGER.log(Level.SEVERE, "TIMEOUT: the workload did not finish within {0} minutes", DEADLINE_MINUTES);
+            return false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.severe("Interrupted while waiting for the workload");
+            return false;
+        }
+        finally {
+            try {
+                scheduler.shutdown(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
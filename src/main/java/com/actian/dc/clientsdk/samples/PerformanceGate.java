@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.cosmos.Config;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a fixed workload with the LoadGenerator and compares its throughput
+ * and p99 latency against a stored baseline, exiting with a non-zero status
+ * when either has regressed by more than the allowed percentage.  The
+ * workload should run closed-loop (concurrency=N), so that throughput is the
+ * capacity of the client and engine rather than an arrival rate.
+ * <p>
+ * The workload runs against the local engine when a DataConnect installation
+ * is found, and p99 is the latency of a whole job.  Otherwise it runs against
+ * a SimulatedJobSubmitter, whose fixed service time only adds timer jitter, so
+ * p99 is the time the client takes to build and submit a task.  Each has its
+ * own baseline values.
+ * <p>
+ * Arguments: baseline file, followed by optional LoadGenerator settings.
+ * Settings read from the baseline file:
+ * <pre>
+ * workload=concurrency=4 duration=30 connections=4 seed=1
+ * standin.slots=4
+ * standin.serviceMillis=20
+ * maxThroughputDropPercent=15
+ * maxP99IncreasePercent=50
+ * p99SlackMs=2
+ * standin.throughput=...   engine.throughput=...
+ * standin.p99SubmitMs=...  engine.p99Ms=...
+ * standin.host=...         engine.host=...
+ * </pre>
+ * p99SlackMs is an absolute allowance added to the p99 limit, so that
+ * sub-millisecond baselines don't fail on scheduling noise.
+ * Set the system property perf.updateBaseline=true to record the measured
+ * values as the new baseline instead of checking them.
+ * <p>
+ * Baseline results only mean something on the host they were measured on.
+ * The system property perf.reference names a separate file to record them
+ * in and check them against, which lets a build measure a known-good commit
+ * and then the change on the same machine.  The host a result was recorded
+ * on is stored with it, and a check against results from another host logs
+ * a warning.
+ */
+public class PerformanceGate
+{
+    private static final Logger logger = LogUtil.getLogger(PerformanceGate.class);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1)
+            throw new IllegalArgumentException("Usage: PerformanceGate <baseline file> [load settings]");
+        File baselineFile = new File(args[0]);
+        Properties baseline = new Properties();
+        try (InputStream in = new FileInputStream(baselineFile)) {
+            baseline.load(in);
+        }
+
+        List<String> workload = new ArrayList<>(Arrays.asList(
+                baseline.getProperty("workload", "").trim().split("\\s+")));
+        workload.removeIf(String::isEmpty);
+        workload.addAll(Arrays.asList(args).subList(1, args.length));
+        LoadGenerator.Settings settings = LoadGenerator.Settings.parse(workload);
+
+        String referencePath = System.getProperty("perf.reference", "").trim();
+        File referenceFile = referencePath.isEmpty() ? baselineFile : new File(referencePath);
+        Properties reference = baseline;
+        if (!referenceFile.equals(baselineFile)) {
+            reference = new Properties();
+            if (referenceFile.isFile()) {
+                try (InputStream in = new FileInputStream(referenceFile)) {
+                    reference.load(in);
+                }
+            }
+        }
+
+        boolean useEngine = engineInstalled();
+        String prefix = useEngine ? "engine." : "standin.";
+        ConnectionBuilder cxnBuilder = null;
+        JobSubmitter submitter;
+        if (useEngine) {
+            cxnBuilder = new ConnectionBuilder(SamplesConfig.load());
+            submitter = new ConnectionJobSubmitter(cxnBuilder, settings.getConnections());
+        }
+        else {
+            logger.info("No DataConnect installation found, running against the stand-in engine");
+            submitter = new SimulatedJobSubmitter(
+                    Integer.parseInt(baseline.getProperty("standin.slots", "4")),
+                    Long.parseLong(baseline.getProperty("standin.serviceMillis", "20")));
+        }
+
+        LoadGenerator.Result result;
+        try {
+            result = new LoadGenerator(settings, submitter, SamplesRunner.loadTasks(settings)).run();
+            result.write();
+        }
+        finally {
+            submitter.close();
+            if (cxnBuilder != null)
+                cxnBuilder.shutdown();
+        }
+
+        double throughput = result.getThroughput();
+        LatencyRecorder gated = useEngine ? result.getLatency() : result.getSubmitLatency();
+        String p99Key = prefix + (useEngine ? "p99Ms" : "p99SubmitMs");
+        double p99 = gated.getPercentileMicros(99) / 1000.0;
+        String hostKey = prefix + "host";
+        if (Boolean.getBoolean("perf.updateBaseline")) {
+            updateBaseline(referenceFile, prefix + "throughput", format(throughput));
+            updateBaseline(referenceFile, p99Key, format(p99));
+            updateBaseline(referenceFile, hostKey, host());
+            logger.log(Level.INFO, "Updated baseline {0}", referenceFile.getAbsolutePath());
+            return;
+        }
+
+        String recordedHost = reference.getProperty(hostKey);
+        if (recordedHost != null && !recordedHost.equals(host())) {
+            logger.log(Level.WARNING, "Baseline was recorded on {0} but this is {1}; regenerate it on this host"
+                    + " with -Dperf.updateBaseline=true", new Object[]{recordedHost, host()});
+        }
+        boolean ok = result.getErrors() == 0 && result.getIncomplete() == 0 && result.getDropped() == 0;
+        if (!ok)
+            logger.severe("Workload had errors, dropped arrivals or incomplete jobs");
+        ok &= check("throughput", throughput, reference.getProperty(prefix + "throughput"),
+                -percent(baseline, "maxThroughputDropPercent", 15), 0);
+        ok &= check(useEngine ? "p99 latency ms" : "p99 submit ms", p99, reference.getProperty(p99Key),
+                percent(baseline, "maxP99IncreasePercent", 50), percent(baseline, "p99SlackMs", 2));
+        if (!ok) {
+            logger.severe("Performance regression detected");
+            System.exit(1);
+        }
+        logger.info("Performance within baseline");
+    }
+
+    /**
+     * Compare a measured value with its baseline
+     * @param allowedChange allowed change in percent; negative for values
+     * which must not fall (throughput), positive for values which must not
+     * rise (latency)
+     * @param slack absolute amount a rising value may exceed the percentage limit by
+     */
+    static boolean check(String name, double measured, String baselineValue, double allowedChange, double slack) {
+        if (baselineValue == null) {
+            logger.log(Level.WARNING, "No baseline for {0}, measured {1}", new Object[]{name, format(measured)});
+            return true;
+        }
+        double expected = Double.parseDouble(baselineValue);
+        double limit = expected * (1 + allowedChange / 100.0);
+        if (allowedChange >= 0)
+            limit += slack;
+        boolean ok = allowedChange < 0 ? measured >= limit : measured <= limit;
+        logger.log(ok ? Level.INFO : Level.SEVERE, "{0}: measured {1}, baseline {2}, limit {3}",
+                new Object[]{name, format(measured), format(expected), format(limit)});
+        return ok;
+    }
+
+    /**
+     * Replace (or append) a single key in the baseline file, leaving its
+     * comments and other settings untouched
+     */
+    private static void updateBaseline(File file, String key, String value) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null)
+            dir.mkdirs();
+        List<String> lines = file.isFile()
+                ? new ArrayList<>(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) : new ArrayList<>();
+        boolean found = false;
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).trim().startsWith(key + "=")) {
+                lines.set(i, key + "=" + value);
+                found = true;
+            }
+        }
+        if (!found)
+            lines.add(key + "=" + value);
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static double percent(Properties baseline, String key, double defaultValue) {
+        return Double.parseDouble(baseline.getProperty(key, String.valueOf(defaultValue)));
+    }
+
+    private static boolean engineInstalled() {
+        try {
+            String installPath = Config.getInstance().getProperty("InstallPath");
+            return installPath != null && new File(installPath).isDirectory();
+        } catch (RuntimeException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the operating system, architecture, processor count and Java
+     * version, which identify the kind of host a result was measured on
+     */
+    static String host() {
+        return System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", "
+                + Runtime.getRuntime().availableProcessors() + " cpus, Java " + System.getProperty("java.version");
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+/**
+ * Policies used by the EngineRouter to pick the engine endpoint that a new
+ * connection is created against.
+ */
+public enum RoutingPolicy
+{
+    /** Cycle through the configured engines in order */
+    ROUND_ROBIN,
+    /** Pick the engine with the fewest jobs in flight, then the fewest connections */
+    LEAST_OUTSTANDING,
+    /** Consistently map a package name to the same engine */
+    PACKAGE_HASH
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Persistent record of the input fingerprint of the last successful run of
+ * each task, stored as a properties file.
+ */
+class RunLedger
+{
+    private final File file;
+    private final Properties entries = new Properties();
+
+    RunLedger(File file) throws IOException {
+        this.file = file;
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                entries.load(in);
+            }
+        }
+    }
+
+    /**
+     * @param key task key
+     * @return the fingerprint of the last successful run, or null
+     */
+    synchronized String lastSuccess(String key) {
+        return entries.getProperty(key);
+    }
+
+    /**
+     * Record a successful run and save the ledger
+     * @param key task key
+     * @param fingerprint fingerprint of the inputs of the run
+     * @throws IOException if the ledger can't be saved
+     */
+    synchronized void recordSuccess(String key, String fingerprint) throws IOException {
+        entries.setProperty(key, fingerprint);
+        File dir = file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        // Write a temporary file and move it into place so a crash never
+        // leaves a truncated ledger behind
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            entries.store(out, "Input fingerprints of the last successful run of each task");
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of a runtime configuration (*.rtc) file, giving access to the
+ * parts of it the client needs to inspect before a task is submitted, such as
+ * the entry point and the files used by its datasets.
+ */
+class RuntimeConfigFile
+{
+    static final String SOURCE = "source";
+    static final String TARGET = "target";
+
+    private final File file;
+    private final String text;
+    private final Map<String, Object> root;
+
+    private RuntimeConfigFile(File file, String text, Map<String, Object> root) {
+        this.file = file;
+        this.text = text;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static RuntimeConfigFile read(File file) throws IOException {
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Object root;
+        try {
+            root = JsonParser.parse(text);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid runtime configuration " + file + ": " + e.getMessage(), e);
+        }
+        if (!(root instanceof Map))
+            throw new IOException("Invalid runtime configuration " + file + ": not a JSON object");
+        return new RuntimeConfigFile(file, text, (Map<String, Object>)root);
+    }
+
+    /**
+     * @return the parsed JSON object of the runtime configuration
+     */
+    Map<String, Object> getRoot() {
+        return root;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the raw text of the runtime configuration
+     */
+    String getText() {
+        return text;
+    }
+
+    String getPackageName() {
+        return (String)root.get("packageName");
+    }
+
+    String getPackageVersion() {
+        return (String)root.get("packageVersion");
+    }
+
+    String getEntryPoint() {
+        return (String)root.get("entryPoint");
+    }
+
+    /**
+     * @param sessionType SOURCE or TARGET
+     * @return the named datasets whose session has the given type
+     */
+    List<Map<String, Object>> datasets(String sessionType) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> named : list(map(root, "datasetConfigs"), "namedDatasets")) {
+            Map<String, Object> dataset = map(named, "dataset");
+            if (sessionType.equalsIgnoreCase((String)map(dataset, "session_info").get("type")))
+                result.add(dataset);
+        }
+        return result;
+    }
+
+    /**
+     * Find the File parts of the datasets with the given session type, URL
+     * decoded and with macro references resolved.
+     * @param sessionType SOURCE or TARGET
+     * @param macros macros used to resolve the file names
+     * @return the files used by the datasets
+     */
+    List<File> datasetFiles(String sessionType, MacroSet macros) {
+        List<File> files = new ArrayList<>();
+        for (Map<String, Object> dataset : datasets(sessionType)) {
+            String value = part(dataset, "File");
+            if (value != null && !value.isEmpty())
+                files.add(new File(macros.resolve(decode(value))));
+        }
+        return files;
+    }
+
+    /**
+     * @param dataset dataset returned by datasets()
+     * @param name connection part name, e.g. File
+     * @return the raw value of the connection part, or null
+     */
+    static String part(Map<String, Object> dataset, String name) {
+        return lookup(list(map(dataset, "connect_info"), "parts"), name);
+    }
+
+    /**
+     * @param dataset dataset returned by datasets()
+     * @param name connection property name, e.g. fldsep
+     * @return the URL decoded value of the connection property, or null
+     */
+    static String property(Map<String, Object> dataset, String name) {
+        String value = lookup(list(map(dataset, "connect_info"), "properties"), name);
+        return value == null ? null : decode(value);
+    }
+
+    private static String lookup(List<Map<String, Object>> pairs, String name) {
+        for (Map<String, Object> pair : pairs) {
+            if (name.equals(pair.get("name")))
+                return (String)pair.get("value");
+        }
+        return null;
+    }
+
+    static String decode(String value) {
+        try {
+            // Values are percent encoded; a literal '+' is not a space
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> map(Map<String, Object> parent, String key) {
+        Object value = parent == null ? null : parent.get(key);
+        return value instanceof Map ? (Map<String, Object>)value : Collections.emptyMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> list(Map<String, Object> parent, String key) {
+        Object value = parent == null ? null : parent.get(key);
+        if (!(value instanceof List))
+            return Collections.emptyList();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object item : (List<Object>)value) {
+            if (item instanceof Map)
+                result.add((Map<String, Object>)item);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * External configuration used by the samples.  Settings are read from the
+ * properties file named by the <code>samples.config</code> system property (if
+ * any) and may be overridden individually by system properties carrying the
+ * <code>samples.</code> prefix, e.g. <code>-Dsamples.engine.count=2</code>.
+ * Keys are looked up without the prefix.
+ */
+public class SamplesConfig
+{
+    private static final Logger LOGGER = LogUtil.getLogger(SamplesConfig.class);
+
+    static final String CONFIG_FILE_PROPERTY = "samples.config";
+    static final String PREFIX = "samples.";
+    static final String DEFAULT_WORK_ROOT = "target/work";
+
+    private final Properties props;
+
+    SamplesConfig(Properties props) {
+        this.props = props;
+    }
+
+    /**
+     * Load the configuration from the optional configuration file and the
+     * system properties
+     * @return SamplesConfig instance
+     */
+    public static SamplesConfig load() {
+        Properties props = new Properties();
+        String fileName = System.getProperty(CONFIG_FILE_PROPERTY);
+        if (fileName != null && !fileName.trim().isEmpty()) {
+            File file = new File(fileName.trim());
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+                LOGGER.log(Level.INFO, "Loaded samples configuration from {0}", file.getAbsolutePath());
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read samples configuration " + file.getAbsolutePath(), e);
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PREFIX) && !name.equals(CONFIG_FILE_PROPERTY)) {
+                props.setProperty(name.substring(PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return new SamplesConfig(props);
+    }
+
+    String getString(String key, String defaultValue) {
+        String value = props.getProperty(key);
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
+    int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Configuration value '" + key + "' is not an integer: " + value);
+        }
+    }
+
+    long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Configuration value '" + key + "' is not a number: " + value);
+        }
+    }
+
+    boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * @return the directory work files are written below, set by
+     * <code>work.root</code>
+     */
+    File getWorkRoot() {
+        return new File(getString("work.root", DEFAULT_WORK_ROOT));
+    }
+}
@@ -19,6 +19,7 @@ import com.pervasive.di.client.sdk.SDKException;
 import com.pervasive.di.client.sdk.Task;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,18 +47,52 @@ public class SamplesRunner
         return artifactPath(fullPackageName);
     }
     
+    static final String LOAD_MODE = "--load";
+    
     static final String SAMPLE_DATA_MACRO_NAME = "samples";
     
     static final String SAMPLE_DATA_MACRO_VALUE = new File("target/runtime/data").getAbsolutePath();
+    
+    // Target file of the sample map, which a task can override to write elsewhere
+    static final String SAMPLE_TARGET_MACRO_NAME = "target";
+    
+    static final String SAMPLE_TARGET_MACRO_VALUE = new File(SAMPLE_DATA_MACRO_VALUE, "invoices_trg.txt").getAbsolutePath();
               
-    private static final TaskBuilder taskBuilder;
+    /**
+     * Holder for the shared TaskBuilder, created when the first task is built
+     * rather than when this class is loaded.
+     */
+    private static class TaskBuilderHolder
+    {
+        static final TaskBuilder taskBuilder = StartupTimer.time("taskBuilder", () -> {
+            Map<String, String> macros = new HashMap<>();
+            macros.put(SAMPLE_DATA_MACRO_NAME, SAMPLE_DATA_MACRO_VALUE);
+            macros.put(SAMPLE_TARGET_MACRO_NAME, SAMPLE_TARGET_MACRO_VALUE);
+            TaskBuilder builder = new TaskBuilder(SAMPLE_PACKAGE_NAME, SAMPLE_PACKAGE_VERSION, MacroSet.of(macros));
+            builder.setStrictMacros(true);
+            SamplesConfig config = SamplesConfig.load();
+            if (config.getBoolean("validate.sources", true)) {
+                builder.setSourceValidator(SourceValidator.fromConfig(config));
+            }
+            return builder;
+        });
+    }
     
-    static {
-        Map<String, String> macros = new HashMap<>();
-        macros.put(SAMPLE_DATA_MACRO_NAME, SAMPLE_DATA_MACRO_VALUE);        
-        taskBuilder = new TaskBuilder(SAMPLE_PACKAGE_NAME, SAMPLE_PACKAGE_VERSION, macros);
+    /**
+     * @return the macros applied to every sample task
+     */
+    static MacroSet sampleMacros() {
+        return TaskBuilderHolder.taskBuilder.getMacros();
     }
     
+    /**
+     * @param rtcName Name of a runtime configuration in the artifacts directory, may be null
+     * @return the runtime configuration file, or null if rtcName is null
+     */
+    static File sampleRuntimeConfig(String rtcName) {
+        return rtcName == null ? null : new File(artifactPath(rtcName));
+    }
+
     /**
      * Convenience method which creates a new Task using the runtime configuration file
      * referenced by the string argument
@@ -66,12 +101,25 @@ public class SamplesRunner
      * @throws com.pervasive.di.client.sdk.SDKException if an error occurs while creating the task
      */
     static Task sampleTask(String rtcName) throws SDKException {
+        return sampleTask(rtcName, MacroSet.EMPTY);
+    }
+    
+    /**
+     * Creates a new Task using the runtime configuration file referenced by
+     * the string argument, with macros which apply to this task only, for
+     * example a target of its own
+     * @param rtcName Name of the source runtime configuration
+     * @param taskMacros macros which add to or override the sample macros
+     * @return com.pervasive.di.client.sdk.Task instance
+     * @throws com.pervasive.di.client.sdk.SDKException if an error occurs while creating the task
+     */
+    static Task sampleTask(String rtcName, MacroSet taskMacros) throws SDKException {
+        TaskBuilder taskBuilder = TaskBuilderHolder.taskBuilder;
         if (rtcName == null) {
             return taskBuilder.buildTask();
         }
         else {
-            File rtcFile = new File(artifactPath(rtcName));                
-            Task task = taskBuilder.buildTask(rtcFile);
+            Task task = taskBuilder.buildTask(sampleRuntimeConfig(rtcName), taskMacros);
             task.setName("Run sample project using configuration "+rtcName);
             return task;
         }        
@@ -81,11 +129,23 @@ public class SamplesRunner
      * The entry point used to drive execution of the samples.  Optionally accepts
      * a single command line argument which represents the name of a single sample
      * class.
+     * <p>
+     * When the first argument is --load, the runner instead generates load
+     * from the sample runtime configurations; see runLoad.
+     * <p>
+     * When the system property samples.startupOnly is true, the runner only
+     * performs its startup work (configuration, ConnectionBuilder and Task
+     * creation) and exits without connecting.  This is used as the training run
+     * for the class data sharing archive built by the appcds profile.
      * @param args container of the command line arguments
      * @throws Exception 
      */
     public static void main(String[] args) throws Exception
     {
+        StartupTimer.markMain();
+        if (args != null && args.length > 0 && LOAD_MODE.equals(args[0].trim())) {
+            System.exit(runLoad(Arrays.asList(args).subList(1, args.length)) ? 0 : 1);
+        }
         List<ConnectionUser> samples = new ArrayList<>();   
         if (args!=null && args.length > 0 && args[0].trim().length() > 0) {
             Class<?> clazz = null;
@@ -114,20 +174,121 @@ public class SamplesRunner
             samples.add(new AsyncExecutionSample());
             samples.add(new ThreadedAsyncExecutionSample());
             samples.add(new ExecutionListenerSample());
+            samples.add(new DagExecutionSample());
+            samples.add(new IncrementalExecutionSample());
+            samples.add(new BatchSubmissionSample());
+            samples.add(new MixedWorkloadSample());
         }
         
-        // Create a ConnectionBuilder and then execute each by calling the
-        // sample's useConnection() method.
-        ConnectionBuilder cxnBuilder = new ConnectionBuilder();        
+        // Create a ConnectionBuilder, warming up the engines first if requested,
+        // and then execute each by calling the sample's useConnection() method.
+        SamplesConfig config = StartupTimer.time("config", SamplesConfig::load);
+        if (config.getBoolean("startupOnly", false)) {
+            StartupTimer.time("connectionBuilder", () -> new ConnectionBuilder(config));
+            sampleTask("Samples.map.rtc");
+            StartupTimer.log();
+            return;
+        }
+        ConnectionBuilder cxnBuilder;
+        if (config.getBoolean("warmup.enabled", false)) {
+            WarmUp.Report report = warmUp(config);
+            cxnBuilder = report.getConnectionBuilder();
+            if (!report.isOk()) {
+                logger.severe("Warm-up failed, not running the samples");
+                cxnBuilder.shutdown();
+                System.exit(1);
+            }
+        }
+        else {
+            cxnBuilder = StartupTimer.time("connectionBuilder", () -> new ConnectionBuilder(config));
+        }
         for (ConnectionUser sample : samples) {
             String sampleName = sample.getClass().getSimpleName();
             logger.log(Level.INFO, "Starting {0}", sampleName);
             boolean ok = sample.useConnection(cxnBuilder);
+            StartupTimer.log();
             String status = ok ? "OK" : "ERROR";
             logger.log(Level.INFO, "{0} finished {1}\n", new String[]{sampleName, status});
             if (!ok) {
                 break;
             }
         }
+        ExecutionConnectionUser.JOB_STATS.log();
+        JobTracer.get().close();
+        cxnBuilder.shutdown();
+    }
+    
+    /**
+     * Submit the sample runtime configurations, in turn, at a target arrival
+     * rate for a set duration and write the latency percentiles and the
+     * throughput time series to the output directory.  Accepts the key=value
+     * arguments described by LoadGenerator.Settings, e.g.
+     * <pre>--load rate=20 duration=300 connections=4 arrival=poisson rtcs=Samples.map.rtc out=target/load</pre>
+     * @return true if every job completed successfully
+     */
+    private static boolean runLoad(List<String> args) throws Exception {
+        LoadGenerator.Settings settings = LoadGenerator.Settings.parse(args);
+        SamplesConfig config = SamplesConfig.load();
+        ConnectionBuilder cxnBuilder = new ConnectionBuilder(config);
+        AdaptiveLimiter limiter = config.getBoolean("limit.adaptive", false) ? AdaptiveLimiter.fromConfig(config) : null;
+        JobSubmitter submitter = new ConnectionJobSubmitter(cxnBuilder, settings.getConnections(), limiter);
+        try {
+            LoadGenerator.Result result = new LoadGenerator(settings, submitter, loadTasks(settings)).run();
+            for (File file : result.write()) {
+                logger.log(Level.INFO, "Wrote {0}", file.getAbsolutePath());
+            }
+            if (limiter != null) {
+                logger.log(Level.INFO, "Adaptive concurrency limit settled at {0}", limiter.getLimit());
+            }
+            return result.getErrors() == 0 && result.getIncomplete() == 0 && result.getDropped() == 0;
+        }
+        finally {
+            submitter.close();
+            JobTracer.get().close();
+            cxnBuilder.shutdown();
+        }
+    }
+    
+    /**
+     * Task factory for load runs, which builds the runtime configurations in
+     * turn.  Every job writes its own target file, numbered by its sequence,
+     * in the targets directory below the output directory, so that jobs in
+     * flight together never write the same file.
+     * @param settings load settings
+     * @return the task factory
+     */
+    static LoadGenerator.TaskFactory loadTasks(LoadGenerator.Settings settings) {
+        List<String> rtcNames = settings.getRtcNames();
+        File targets = new File(settings.getOutputDir(), "targets").getAbsoluteFile();
+        targets.mkdirs();
+        return sequence -> {
+            Map<String, String> macros = new HashMap<>();
+            macros.put(SAMPLE_TARGET_MACRO_NAME, new File(targets, "invoices_trg_" + sequence + ".txt").getPath());
+            return sampleTask(rtcNames.get((int)(sequence % rtcNames.size())).trim(), MacroSet.of(macros));
+        };
+    }
+    
+    /**
+     * Warm up using the settings warmup.connections (number of connections to
+     * pre-create per package) and warmup.tasks (comma separated runtime
+     * configurations of the sample package to run once each).  The packaged
+     * V9 task is also run, so that each package is warmed.  All packages in
+     * the artifacts directory are preloaded.
+     */
+    private static WarmUp.Report warmUp(SamplesConfig config) throws Exception {
+        WarmUp warmUp = new WarmUp(config, config.getInt("warmup.connections", 1));
+        File[] packages = new File(ARTIFACTS_PATH).listFiles((dir, name) -> name.endsWith(".djar"));
+        if (packages != null) {
+            for (File djar : packages) {
+                warmUp.addPackage(djar);
+            }
+        }
+        for (String rtcName : config.getString("warmup.tasks", "Samples.map.rtc").split(",")) {
+            if (!rtcName.trim().isEmpty()) {
+                warmUp.addTask(sampleTask(rtcName.trim()));
+            }
+        }
+        warmUp.addTask(V9ExecutionSample.packagedTask());
+        return warmUp.run();
     }
 }
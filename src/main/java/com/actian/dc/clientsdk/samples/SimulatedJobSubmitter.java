@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Task;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for an engine, used to exercise the client side of a workload when
+ * no DataConnect installation is present.  Jobs queue for a fixed number of
+ * execution slots and each one occupies a slot for a fixed service time.
+ */
+public class SimulatedJobSubmitter implements JobSubmitter
+{
+    private final ExecutorService slots;
+    private final long serviceMillis;
+
+    /**
+     * @param slots number of jobs the stand-in engine runs at once
+     * @param serviceMillis time each job takes to run
+     */
+    public SimulatedJobSubmitter(int slots, long serviceMillis) {
+        this.slots = Executors.newFixedThreadPool(slots, r -> {
+            Thread t = new Thread(r, "simulated-engine");
+            t.setDaemon(true);
+            return t;
+        });
+        this.serviceMillis = serviceMillis;
+    }
+
+    @Override
+    public void submit(Task task, Completion completion) {
+        slots.execute(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(serviceMillis);
+                completion.done(true);
+            } catch (InterruptedException e) {
+                completion.done(false);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        slots.shutdownNow();
+    }
+}
@@ -0,0 +1,563 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.SDKException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checks the source files of a runtime configuration against the schema of
+ * their datasets before the task is submitted, so that input which would
+ * fail the job is rejected without taking an engine slot.  The schema,
+ * delimiters and record separator are those recorded in the runtime
+ * configuration's datasets (<code>schema_info</code> and
+ * <code>connect_info</code>), not read from the package.  ASCII (Delimited)
+ * sources with a single record type are checked for:
+ * <ul>
+ * <li>records with more or fewer fields than the schema defines</li>
+ * <li>fields longer than their schema length, when the runtime configuration's
+ * truncationOption is ERROR</li>
+ * </ul>
+ * The file is memory mapped and split into chunks at record separators,
+ * which are parsed in parallel, so records are assumed not to contain the
+ * separator within quoted fields.  A separator of CR-LF or LF (or none)
+ * ends records at line breaks, with or without a carriage return; any other
+ * <code>recsep</code> must match exactly, and violations are then numbered
+ * by record rather than by line.  Lengths are counted in bytes for the default code
+ * page (0) and in UTF-8 characters otherwise.  The parsed runtime
+ * configuration and the result for each source file are cached until the
+ * file changes; the most recently used entries are kept.
+ */
+public class SourceValidator
+{
+    private static final Logger logger = LogUtil.getLogger(SourceValidator.class);
+
+    private static final String DELIMITED_CONNECTOR = "ASCII (Delimited)";
+    private static final int BOUNDARY_WINDOW = 64 * 1024;
+    private static final int MAX_CACHED = 256;
+    private static final byte[] LINE_BREAK = { '\n' };
+
+    private final int chunkBytes;
+    private final int maxViolations;
+    private final ExecutorService executor;
+    // Source datasets of each runtime configuration, by file, size and time
+    private final Map<String, List<Source>> sourceCache = lruMap(MAX_CACHED);
+    // Report of each source dataset, by runtime configuration and source file
+    private final Map<String, Report> reportCache = lruMap(MAX_CACHED);
+
+    /**
+     * @param threads number of threads which parse chunks
+     * @param chunkBytes approximate size of each chunk
+     * @param maxViolations number of violations kept per file, further violations are only counted
+     */
+    public SourceValidator(int threads, int chunkBytes, int maxViolations) {
+        this.chunkBytes = chunkBytes;
+        this.maxViolations = maxViolations;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "source-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param config the samples configuration
+     * @return a validator configured by the <code>validate.*</code> settings
+     */
+    static SourceValidator fromConfig(SamplesConfig config) {
+        return new SourceValidator(
+                config.getInt("validate.threads", Runtime.getRuntime().availableProcessors()),
+                config.getInt("validate.chunkBytes", 8 * 1024 * 1024),
+                config.getInt("validate.maxViolations", 100));
+    }
+
+    /**
+     * Validate the source files of a runtime configuration, throwing if any
+     * of them don't match their schema
+     * @param rtcFile runtime configuration file
+     * @param macros macros used to resolve the source file names
+     * @throws SDKException if a source file doesn't match its schema
+     */
+    public void check(File rtcFile, MacroSet macros) throws SDKException {
+        for (Report report : validate(rtcFile, macros)) {
+            if (!report.isValid())
+                throw new SDKException(report.toString());
+        }
+    }
+
+    /**
+     * @param rtcFile runtime configuration file
+     * @param macros macros used to resolve the source file names
+     * @return a report for each source dataset which could be checked
+     */
+    public List<Report> validate(File rtcFile, MacroSet macros) {
+        String rtcKey = rtcFile.getAbsolutePath() + '|' + rtcFile.length() + '|' + rtcFile.lastModified();
+        List<Source> sources = cached(sourceCache, rtcKey);
+        if (sources == null) {
+            RuntimeConfigFile rtc;
+            try {
+                rtc = RuntimeConfigFile.read(rtcFile);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to validate sources of {0}: {1}", new Object[]{rtcFile.getName(), e.getMessage()});
+                return Collections.emptyList();
+            }
+            sources = sources(rtc);
+            cache(sourceCache, rtcKey, sources);
+        }
+        List<Report> reports = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            Source source = sources.get(i);
+            File file = new File(macros.resolve(source.fileName));
+            if (source.layout == null) {
+                logger.log(Level.FINE, "Not validating {0}: {1}", new Object[]{file.getName(), source.reason});
+                continue;
+            }
+            String key = rtcKey + '|' + i + '|' + file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+            Report report = cached(reportCache, key);
+            if (report == null) {
+                report = validate(file, source.layout);
+                if (report == null)
+                    continue;
+                cache(reportCache, key, report);
+            }
+            reports.add(report);
+        }
+        return reports;
+    }
+
+    /**
+     * Stop the parsing threads
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static List<Source> sources(RuntimeConfigFile rtc) {
+        boolean checkLengths = "ERROR".equalsIgnoreCase(
+                (String)RuntimeConfigFile.map(rtc.getRoot(), "transformOptions").get("truncationOption"));
+        List<Source> sources = new ArrayList<>();
+        for (Map<String, Object> dataset : rtc.datasets(RuntimeConfigFile.SOURCE)) {
+            String part = RuntimeConfigFile.part(dataset, "File");
+            if (part != null && !part.isEmpty())
+                sources.add(source(RuntimeConfigFile.decode(part), dataset, checkLengths));
+        }
+        return Collections.unmodifiableList(sources);
+    }
+
+    private static Source source(String fileName, Map<String, Object> dataset, boolean checkLengths) {
+        String connector = (String)RuntimeConfigFile.map(dataset, "session_info").get("connector");
+        List<String> names = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        if (!DELIMITED_CONNECTOR.equals(connector) || !schemaFields(dataset, names, lengths))
+            return new Source(fileName, null, connector + " source without a single record type");
+        // a code page of 0 is the single byte default, whose field lengths are in bytes
+        String codepage = RuntimeConfigFile.property(dataset, "codepage");
+        boolean countBytes = codepage == null || codepage.isEmpty() || codepage.equals("0");
+        int maxDelimiter = countBytes ? 0xFF : 0x7F;
+        String fieldSeparator = RuntimeConfigFile.property(dataset, "fldsep");
+        String startDelimiter = RuntimeConfigFile.property(dataset, "fldsdelim");
+        String endDelimiter = RuntimeConfigFile.property(dataset, "fldedelim");
+        if (fieldSeparator == null || fieldSeparator.length() != 1 || fieldSeparator.charAt(0) > maxDelimiter
+                || !singleByte(startDelimiter, maxDelimiter) || !singleByte(endDelimiter, maxDelimiter))
+            return new Source(fileName, null, "unsupported delimiters");
+        byte[] recordSeparator = recordSeparator(RuntimeConfigFile.property(dataset, "recsep"), maxDelimiter);
+        if (recordSeparator == null)
+            return new Source(fileName, null, "unsupported record separator");
+        Layout layout = new Layout(names, lengths, checkLengths, countBytes, (byte)fieldSeparator.charAt(0),
+                delimiter(startDelimiter), delimiter(endDelimiter), recordSeparator,
+                Boolean.parseBoolean(RuntimeConfigFile.property(dataset, "header")));
+        return new Source(fileName, layout, null);
+    }
+
+    private Report validate(File source, Layout layout) {
+        if (!source.isFile()) {
+            logger.log(Level.WARNING, "Source file {0} does not exist", source);
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            Report report = scan(source, layout);
+            logger.log(Level.INFO, "Validated {0} records of {1} in {2}ms: {3} violation(s)",
+                    new Object[]{report.records, source.getName(),
+                        (System.nanoTime() - start) / 1_000_000, report.violationCount});
+            return report;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to validate {0}: {1}", new Object[]{source, e.getMessage()});
+            return null;
+        }
+    }
+
+    private static boolean singleByte(String delimiter, int maxDelimiter) {
+        return delimiter == null || delimiter.isEmpty()
+                || (delimiter.length() == 1 && delimiter.charAt(0) <= maxDelimiter);
+    }
+
+    /**
+     * @return the bytes which end a record, LF for line breaks, or null if
+     * the separator can't be matched byte for byte
+     */
+    private static byte[] recordSeparator(String value, int maxDelimiter) {
+        if (value == null || value.isEmpty() || value.equals("\r\n") || value.equals("\n"))
+            return LINE_BREAK;
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            if (value.charAt(i) > maxDelimiter)
+                return null;
+            bytes[i] = (byte)value.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the delimiter as an unsigned byte, or -1 if there is none
+     */
+    private static int delimiter(String value) {
+        return value == null || value.isEmpty() ? -1 : value.charAt(0);
+    }
+
+    private static <V> Map<String, V> lruMap(int maxEntries) {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private static <V> V cached(Map<String, V> cache, String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private static <V> void cache(Map<String, V> cache, String key, V value) {
+        synchronized (cache) {
+            cache.put(key, value);
+        }
+    }
+
+    private static boolean schemaFields(Map<String, Object> dataset, List<String> names, List<Integer> lengths) {
+        Map<String, Object> schema = RuntimeConfigFile.map(RuntimeConfigFile.map(dataset, "schema_info"), "schema");
+        List<Map<String, Object>> types = RuntimeConfigFile.list(schema, "type_defs");
+        if (types.size() != 1)
+            return false;
+        for (Map<String, Object> group : RuntimeConfigFile.list(types.get(0), "groups")) {
+            for (Map<String, Object> field : RuntimeConfigFile.list(group, "sequence")) {
+                Object length = field.get("length");
+                names.add((String)field.get("name"));
+                lengths.add(length instanceof Number ? ((Number)length).intValue() : Integer.MAX_VALUE);
+            }
+        }
+        return !names.isEmpty();
+    }
+
+    private Report scan(File source, Layout layout) throws IOException {
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            List<Long> bounds = chunkBounds(channel, layout.recordSeparator);
+            List<Future<Chunk>> futures = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.size(); i++) {
+                long from = bounds.get(i);
+                long to = bounds.get(i + 1);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+                boolean first = i == 0;
+                futures.add(executor.submit(() -> parse(buffer, layout, first && layout.header)));
+            }
+            Report report = new Report(source);
+            long line = 0;
+            for (Future<Chunk> future : futures) {
+                Chunk chunk = future.get();
+                for (Violation violation : chunk.violations) {
+                    violation.line += line;
+                    if (report.violations.size() < maxViolations)
+                        report.violations.add(violation);
+                }
+                report.violationCount += chunk.violationCount;
+                report.records += chunk.records;
+                line += chunk.lines;
+            }
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Split the file into chunks of about chunkBytes which end after a record separator
+     */
+    private List<Long> chunkBounds(FileChannel channel, byte[] separator) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long position = chunkBytes - 1L;
+        while (position < size) {
+            long end = -1;
+            for (long window = position; end < 0 && window < size; window += BOUNDARY_WINDOW) {
+                // windows overlap so that a separator can't straddle two of them
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, window,
+                        Math.min(BOUNDARY_WINDOW + separator.length - 1L, size - window));
+                for (int i = 0; i < Math.min(BOUNDARY_WINDOW, buffer.limit()); i++) {
+                    if (matches(buffer, i, separator)) {
+                        end = window + i + separator.length;
+                        break;
+                    }
+                }
+            }
+            if (end < 0 || end >= size)
+                break;
+            bounds.add(end);
+            position = end + chunkBytes - 1L;
+        }
+        bounds.add(size);
+        return bounds;
+    }
+
+    private static Chunk parse(MappedByteBuffer buffer, Layout layout, boolean skipFirst) {
+        Chunk chunk = new Chunk();
+        int limit = buffer.limit();
+        int field = 0;
+        int chars = 0;
+        boolean quoted = false;
+        boolean empty = true;
+        boolean skip = skipFirst;
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (quoted) {
+                if ((b & 0xFF) == layout.endDelimiter) {
+                    if (i + 1 < limit && buffer.get(i + 1) == layout.endDelimiter) {
+                        chars++;
+                        i++;
+                    }
+                    else {
+                        quoted = false;
+                    }
+                }
+                else if (layout.countBytes || (b & 0xC0) != 0x80) {
+                    chars++;
+                }
+                continue;
+            }
+            if (b == layout.recordSeparator[0] && matches(buffer, i, layout.recordSeparator)) {
+                i += layout.recordSeparator.length - 1;
+                if (!empty) {
+                    if (!skip)
+                        endRecord(chunk, layout, field, chars);
+                    skip = false;
+                }
+                chunk.lines++;
+                field = 0;
+                chars = 0;
+                empty = true;
+                continue;
+            }
+            if (layout.recordSeparator == LINE_BREAK && b == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n')
+                continue;
+            empty = false;
+            if (b == layout.fieldSeparator) {
+                if (!skip)
+                    endField(chunk, layout, field, chars);
+                field++;
+                chars = 0;
+            }
+            else if ((b & 0xFF) == layout.startDelimiter && chars == 0) {
+                quoted = true;
+            }
+            else if (layout.countBytes || (b & 0xC0) != 0x80) {
+                chars++;
+            }
+        }
+        if (!empty && !skip)
+            endRecord(chunk, layout, field, chars);
+        return chunk;
+    }
+
+    private static boolean matches(MappedByteBuffer buffer, int at, byte[] sequence) {
+        if (at + sequence.length > buffer.limit())
+            return false;
+        for (int i = 0; i < sequence.length; i++) {
+            if (buffer.get(at + i) != sequence[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static void endField(Chunk chunk, Layout layout, int field, int chars) {
+        if (layout.checkLengths && field < layout.lengths.size() && chars > layout.lengths.get(field)) {
+            chunk.add(new Violation(chunk.lines + 1, "field '" + layout.names.get(field) + "' has "
+                    + chars + (layout.countBytes ? " bytes" : " characters") + ", more than its length of "
+                    + layout.lengths.get(field)));
+        }
+    }
+
+    private static void endRecord(Chunk chunk, Layout layout, int field, int chars) {
+        endField(chunk, layout, field, chars);
+        chunk.records++;
+        int fields = field + 1;
+        if (fields != layout.names.size()) {
+            chunk.add(new Violation(chunk.lines + 1, "record has " + fields
+                    + " fields, the schema defines " + layout.names.size()));
+        }
+    }
+
+    private static class Layout
+    {
+        final List<String> names;
+        final List<Integer> lengths;
+        final boolean checkLengths;
+        final boolean countBytes;
+        final byte fieldSeparator;
+        final int startDelimiter;
+        final int endDelimiter;
+        final byte[] recordSeparator;
+        final boolean header;
+
+        Layout(List<String> names, List<Integer> lengths, boolean checkLengths, boolean countBytes,
+                byte fieldSeparator, int startDelimiter, int endDelimiter, byte[] recordSeparator, boolean header) {
+            this.names = names;
+            this.lengths = lengths;
+            this.checkLengths = checkLengths;
+            this.countBytes = countBytes;
+            this.fieldSeparator = fieldSeparator;
+            this.startDelimiter = startDelimiter;
+            this.endDelimiter = endDelimiter;
+            this.recordSeparator = recordSeparator;
+            this.header = header;
+        }
+    }
+
+    /**
+     * A source dataset of a runtime configuration, with the layout it is
+     * checked against, or the reason it can't be checked
+     */
+    private static class Source
+    {
+        final String fileName;
+        final Layout layout;
+        final String reason;
+
+        Source(String fileName, Layout layout, String reason) {
+            this.fileName = fileName;
+            this.layout = layout;
+            this.reason = reason;
+        }
+    }
+
+    private static class Chunk
+    {
+        final List<Violation> violations = new ArrayList<>();
+        long violationCount;
+        long records;
+        long lines;
+
+        void add(Violation violation) {
+            if (violations.size() < 1000)
+                violations.add(violation);
+            violationCount++;
+        }
+    }
+
+    /**
+     * A record which doesn't match the schema
+     */
+    public static class Violation
+    {
+        private long line;
+        private final String message;
+
+        Violation(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    /**
+     * Result of validating one source file
+     */
+    public static class Report
+    {
+        private final File source;
+        private final List<Violation> violations = new ArrayList<>();
+        private long violationCount;
+        private long records;
+
+        Report(File source) {
+            this.source = source;
+        }
+
+        public File getSource() {
+            return source;
+        }
+
+        public boolean isValid() {
+            return violationCount == 0;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getViolationCount() {
+            return violationCount;
+        }
+
+        /**
+         * @return the first violations found, in file order
+         */
+        public List<Violation> getViolations() {
+            return violations;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Source ").append(source.getName()).append(": ")
+                    .append(violationCount).append(" violation(s) in ").append(records).append(" records");
+            for (int i = 0; i < Math.min(10, violations.size()); i++) {
+                sb.append("\n  ").append(violations.get(i));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.JobEventName;
+import com.pervasive.di.client.sdk.JobProgress;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FIFO queue of job progress events with a bounded on-heap tier which
+ * overflows to a memory-mapped spill segment, so a burst of progress events
+ * doesn't grow the heap.  Events are drained in the order they were added.
+ * <p>
+ * Only the job id, event name and status code of each event are kept.  If
+ * the spill segment also fills up, events which end a job are still kept,
+ * on the heap, while other events are dropped and counted.
+ */
+class SpillingProgressQueue implements AutoCloseable
+{
+    private static final int WRAP = -1;
+
+    private final int capacity;
+    private final ArrayDeque<Event> memory;
+    private final ArrayDeque<Event> endedOverflow = new ArrayDeque<>();
+    private final File spillFile;
+    private final RandomAccessFile spillRaf;
+    private final MappedByteBuffer spill;
+    private int spillHead;
+    private int spillTail;
+    private int spillCount;
+    private long spilled;
+    private long dropped;
+
+    /**
+     * @param capacity the number of events held on the heap before spilling
+     * @param spillBytes the size of the spill segment
+     * @param directory the directory in which to create the spill file
+     * @throws IOException if the spill file can't be created and mapped
+     */
+    SpillingProgressQueue(int capacity, int spillBytes, File directory) throws IOException {
+        this.capacity = capacity;
+        this.memory = new ArrayDeque<>(capacity);
+        directory.mkdirs();
+        spillFile = File.createTempFile("progress-", ".spill", directory);
+        spillFile.deleteOnExit();
+        spillRaf = new RandomAccessFile(spillFile, "rw");
+        spill = spillRaf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, spillBytes);
+    }
+
+    /**
+     * Add an event to the tail of the queue
+     * @param progress the event
+     * @return false if the event was dropped because both tiers were full
+     */
+    boolean add(JobProgress progress) {
+        return add(new Event(progress.getJobId(), progress.getEventName(), progress.getJobStatusCode()));
+    }
+
+    /**
+     * Add an event to the tail of the queue
+     * @param event the event
+     * @return false if the event was dropped because both tiers were full
+     */
+    synchronized boolean add(Event event) {
+        boolean added;
+        if (!endedOverflow.isEmpty()) {
+            added = overflow(event);
+        }
+        else if (spillCount == 0 && memory.size() < capacity) {
+            added = memory.add(event);
+        }
+        else if (writeSpill(event)) {
+            spilled++;
+            added = true;
+        }
+        else {
+            added = overflow(event);
+        }
+        if (added)
+            notifyAll();
+        return added;
+    }
+
+    /**
+     * Remove the event at the head of the queue, waiting if necessary
+     * @return the event, or null if none arrived within the timeout
+     */
+    synchronized Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return null;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        if (!memory.isEmpty())
+            return memory.poll();
+        if (spillCount > 0)
+            return readSpill();
+        return endedOverflow.poll();
+    }
+
+    synchronized int size() {
+        return memory.size() + spillCount + endedOverflow.size();
+    }
+
+    synchronized long getSpilled() {
+        return spilled;
+    }
+
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    synchronized void clear() {
+        memory.clear();
+        endedOverflow.clear();
+        spillHead = spillTail = spillCount = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        clear();
+        spillRaf.close();
+        spillFile.delete();
+    }
+
+    private boolean isEmpty() {
+        return memory.isEmpty() && spillCount == 0 && endedOverflow.isEmpty();
+    }
+
+    private boolean overflow(Event event) {
+        if (event.getEventName() == JobEventName.JOB_ENDED)
+            return endedOverflow.add(event);
+        dropped++;
+        return false;
+    }
+
+    /*
+     * The spill segment is a ring of records: int length, byte event name
+     * ordinal, byte status ordinal and the UTF-8 job id.  A length of WRAP,
+     * or too little room left for a length, sends the reader back to the start.
+     */
+    private boolean writeSpill(Event event) {
+        byte[] jobId = event.getJobId() == null ? new byte[0] : event.getJobId().getBytes(StandardCharsets.UTF_8);
+        int size = 4 + 2 + jobId.length;
+        int limit = spill.capacity();
+        if (spillCount > 0 && spillTail <= spillHead) {
+            if (spillTail + size > spillHead)
+                return false;
+        }
+        else if (spillTail + size > limit) {
+            if (size > spillHead)
+                return false;
+            if (limit - spillTail >= 4)
+                spill.putInt(spillTail, WRAP);
+            spillTail = 0;
+        }
+        spill.putInt(spillTail, jobId.length);
+        spill.put(spillTail + 4, ordinal(event.getEventName()));
+        spill.put(spillTail + 5, ordinal(event.getJobStatusCode()));
+        for (int i = 0; i < jobId.length; i++)
+            spill.put(spillTail + 6 + i, jobId[i]);
+        spillTail += size;
+        spillCount++;
+        return true;
+    }
+
+    private Event readSpill() {
+        if (spill.capacity() - spillHead < 4 || spill.getInt(spillHead) == WRAP)
+            spillHead = 0;
+        int length = spill.getInt(spillHead);
+        byte eventName = spill.get(spillHead + 4);
+        byte status = spill.get(spillHead + 5);
+        byte[] jobId = new byte[length];
+        for (int i = 0; i < length; i++)
+            jobId[i] = spill.get(spillHead + 6 + i);
+        spillHead += 6 + length;
+        if (--spillCount == 0)
+            spillHead = spillTail = 0;
+        return new Event(new String(jobId, StandardCharsets.UTF_8),
+                eventName < 0 ? null : JobEventName.values()[eventName],
+                status < 0 ? null : JobStatusCode.values()[status]);
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? -1 : (byte)value.ordinal();
+    }
+
+    /**
+     * The parts of a JobProgress event kept by the queue
+     */
+    static final class Event
+    {
+        private final String jobId;
+        private final JobEventName eventName;
+        private final JobStatusCode statusCode;
+
+        Event(String jobId, JobEventName eventName, JobStatusCode statusCode) {
+            this.jobId = jobId;
+            this.eventName = eventName;
+            this.statusCode = statusCode;
+        }
+
+        String getJobId() {
+            return jobId;
+        }
+
+        JobEventName getEventName() {
+            return eventName;
+        }
+
+        JobStatusCode getJobStatusCode() {
+            return statusCode;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records how long the one-time startup phases take (JVM start, configuration
+ * loading, factory creation and so on) so they can be logged once the first
+ * sample has run.  Only the first occurrence of each phase is recorded.
+ */
+final class StartupTimer
+{
+    private static final Logger logger = LogUtil.getLogger(StartupTimer.class);
+
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+    private static boolean logged = false;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Record the time between the start of the JVM process and now, i.e. the
+     * time spent before main() started running.
+     */
+    static void markMain() {
+        Instant start = ProcessHandle.current().info().startInstant().orElse(null);
+        if (start != null) {
+            record("jvm", Duration.between(start, Instant.now()).toNanos());
+        }
+    }
+
+    static synchronized void record(String phase, long nanos) {
+        phases.putIfAbsent(phase, nanos);
+    }
+
+    /**
+     * Run and time a startup phase
+     * @param phase phase name
+     * @param action the work to time
+     * @return the value returned by the action
+     */
+    static <T> T time(String phase, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        }
+        finally {
+            record(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Log the recorded phases.  Only the first call has any effect.
+     */
+    static void log() {
+        List<Map.Entry<String, Long>> entries;
+        synchronized (StartupTimer.class) {
+            if (logged)
+                return;
+            logged = true;
+            entries = new ArrayList<>(phases.entrySet());
+        }
+        for (Map.Entry<String, Long> entry : entries) {
+            logger.log(Level.INFO, "Startup phase {0}: {1} ms",
+                    new Object[]{entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue())});
+        }
+    }
+}
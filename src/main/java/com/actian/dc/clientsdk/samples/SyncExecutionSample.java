@@ -19,6 +19,7 @@ import com.pervasive.di.client.sdk.ExecutionConnection;
 import com.pervasive.di.client.sdk.Job;
 import com.pervasive.di.client.sdk.SDKException;
 import com.pervasive.di.client.sdk.Task;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -41,16 +42,22 @@ public class SyncExecutionSample extends ExecutionConnectionUser
     {
         // Create tasks to execute sychronously
         List<Task> tasks = new ArrayList<>(3);        
+        // Runtime configuration of each task, used to report its data volumes
+        List<File> rtcFiles = new ArrayList<>(3);
         // Add task for sample map, using a runtime configuration      
         tasks.add(SamplesRunner.sampleTask("Samples.map.rtc"));
+        rtcFiles.add(SamplesRunner.sampleRuntimeConfig("Samples.map.rtc"));
         // Add task for sample process, using a runtime configuration
         tasks.add(SamplesRunner.sampleTask("Samples.process.rtc"));
+        rtcFiles.add(SamplesRunner.sampleRuntimeConfig("Samples.process.rtc"));
         // Add task for sample process, specifying entry point directly
         tasks.add(sampleTaskNoConfig()); 
+        rtcFiles.add(null);
         
-        for (Task task: tasks) {
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
             LOGGER.log(Level.INFO, "Submitting task {0}", task.getTaskName());
-            Job job = cxn.submit(task, false);
+            Job job = submit(cxn, task);
             switch (job.getJobStatus())
             {
             case FINISHED_OK:
@@ -69,7 +76,7 @@ public class SyncExecutionSample extends ExecutionConnectionUser
             }
             
             // Report results
-            boolean ok = reportResult(job, cxn);
+            boolean ok = reportResult(job, cxn, task, rtcFiles.get(i));
             if (!ok) return false;
         }
         return true;        
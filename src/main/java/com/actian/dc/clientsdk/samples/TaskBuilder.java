@@ -15,33 +15,71 @@
  */
 package com.actian.dc.clientsdk.samples;
 
-import com.pervasive.di.artifacts.shared.NameValuePair;
 import com.pervasive.di.client.sdk.SDKException;
 import com.pervasive.di.client.sdk.Task;
 import java.io.File;
+import java.io.UncheckedIOException;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Convenience class that encapsulates boilerplate logic to build a task from a provided
  * runtime configuration
+ * <p>
+ * The builder's macros are compiled into a MacroSet once and applied in bulk
+ * to every task.  Macro references in a runtime configuration that don't
+ * resolve are logged, or rejected when strict macro checking is enabled.
+ * When a SourceValidator is set, tasks whose source files don't match their
+ * dataset schema are rejected before they can be submitted.
  * @author twaldrep
  */
 public class TaskBuilder 
 {
     private static final Logger LOGGER = LogUtil.getLogger(TaskBuilder.class);
-            
+
     private final String packageName;
     private final String packageVersion;
-    private final Map<String, String> localMacros;
+    private final MacroSet localMacros;
+    private boolean strictMacros = false;
+    private SourceValidator sourceValidator;
         
     public TaskBuilder(String pkgName, String pkgVersion, Map<String, String> localMacros) {
+        this(pkgName, pkgVersion, MacroSet.of(localMacros));
+    }
+
+    public TaskBuilder(String pkgName, String pkgVersion, MacroSet localMacros) {
         this.packageName = pkgName;
         this.packageVersion = pkgVersion;
         this.localMacros = localMacros;
     }
+
+    /**
+     * @return the macros applied to every task built by this builder
+     */
+    public MacroSet getMacros() {
+        return localMacros;
+    }
+
+    /**
+     * When strict, building a task from a runtime configuration that references
+     * an undefined macro fails instead of logging a warning.  Macros defined
+     * only in the engine's macro file must then be added to the builder.
+     * @param strict true to reject unresolved macro references
+     */
+    public void setStrictMacros(boolean strict) {
+        this.strictMacros = strict;
+    }
     
+    /**
+     * @param validator validator used to check the source files of each
+     * runtime configuration before a task is built from it, null to not check
+     */
+    public void setSourceValidator(SourceValidator validator) {
+        this.sourceValidator = validator;
+    }
+
     /**
      * Build a default task using the existing package name, version and local macros
      * @return com.pervasive.di.client.sdk.Task instance
@@ -59,15 +97,48 @@ public class TaskBuilder
      * @throws SDKException if an error occurs while building the Task
      */
     public Task buildTask(File rtcFile) throws SDKException {
+        return buildTask(rtcFile, MacroSet.EMPTY);
+    }
+
+    /**
+     * Build a task using the existing package name, version, provided runtime 
+     * configuration and local macros overlaid with per-job macros.
+     * @param rtcFile runtime configuration file, may be null
+     * @param jobMacros macros which add to or override the local macros for this task only
+     * @return com.pervasive.di.client.sdk.Task instance
+     * @throws SDKException if an error occurs while building the Task, if
+     * strict macro checking is enabled and the runtime configuration references
+     * an undefined macro, or if a source file doesn't match the schema of its
+     * dataset
+     */
+    public Task buildTask(File rtcFile, MacroSet jobMacros) throws SDKException {
         LOGGER.log(Level.INFO, "Creating task for ''{0}'' Version ''{1}''",
                 new String[]{packageName, packageVersion});
+        MacroSet macros = localMacros.overlay(jobMacros);
         Task task = new Task(packageName, packageVersion);
         if (rtcFile != null) {
+            validateMacros(rtcFile, macros);
+            if (sourceValidator != null)
+                sourceValidator.check(rtcFile, macros);
             task.populate(rtcFile);
         }
-        for (Map.Entry<String, String> entry : localMacros.entrySet()) {
-            task.addMacro(new NameValuePair(entry.getKey(), entry.getValue()));
-        }
+        macros.applyTo(task);
         return task;
     }
+
+    private void validateMacros(File rtcFile, MacroSet macros) throws SDKException {
+        Set<String> unresolved;
+        try {
+            unresolved = macros.unresolved(rtcFile);
+        } catch (UncheckedIOException e) {
+            throw new SDKException("Unable to read runtime configuration " + rtcFile + ": " + e.getCause().getMessage());
+        }
+        if (unresolved.isEmpty())
+            return;
+        String message = "Runtime configuration " + rtcFile.getName()
+                + " references undefined macro(s) " + unresolved;
+        if (strictMacros)
+            throw new SDKException(message);
+        LOGGER.warning(message);
+    }
 }
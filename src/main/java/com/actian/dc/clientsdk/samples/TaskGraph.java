@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Task;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Directed acyclic graph of tasks.  Each task is added under a unique id along
+ * with the ids of the tasks that must finish successfully before it can run.
+ * Dependencies must be added before the tasks that depend on them, which
+ * guarantees the graph has no cycles.
+ */
+public class TaskGraph
+{
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * Add a task to the graph
+     * @param id unique id of the task within the graph
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @param dependsOn ids of previously added tasks this task depends on
+     * @return this instance
+     */
+    public TaskGraph add(String id, Task task, String... dependsOn) {
+        if (nodes.containsKey(id))
+            throw new IllegalArgumentException("Duplicate task id " + id);
+        for (String dependency : dependsOn) {
+            if (!nodes.containsKey(dependency))
+                throw new IllegalArgumentException("Task " + id + " depends on unknown task " + dependency);
+        }
+        Node node = new Node(id, task, Arrays.asList(dependsOn));
+        nodes.put(id, node);
+        for (String dependency : dependsOn) {
+            nodes.get(dependency).dependents.add(id);
+        }
+        return this;
+    }
+
+    Map<String, Node> nodes() {
+        return Collections.unmodifiableMap(nodes);
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Find all nodes downstream of a node
+     * @param id id of the upstream node
+     * @return ids of every node that depends on it, directly or transitively
+     */
+    List<String> downstreamOf(String id) {
+        List<String> result = new ArrayList<>();
+        Map<String, Boolean> seen = new HashMap<>();
+        Deque<String> pending = new ArrayDeque<>(nodes.get(id).dependents);
+        while (!pending.isEmpty()) {
+            String next = pending.poll();
+            if (seen.putIfAbsent(next, Boolean.TRUE) == null) {
+                result.add(next);
+                pending.addAll(nodes.get(next).dependents);
+            }
+        }
+        return result;
+    }
+
+    static class Node
+    {
+        final String id;
+        final Task task;
+        final List<String> dependencies;
+        final List<String> dependents = new ArrayList<>();
+
+        Node(String id, Task task, List<String> dependencies) {
+            this.id = id;
+            this.task = task;
+            this.dependencies = dependencies;
+        }
+    }
+}
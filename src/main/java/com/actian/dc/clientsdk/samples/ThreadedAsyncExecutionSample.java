@@ -16,14 +16,20 @@
 package com.actian.dc.clientsdk.samples;
 
 import com.pervasive.di.client.sdk.*;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
- * Executes a task asynchronously, using wait/notify to determine when the task is complete.
+ * Executes a task asynchronously and waits on its JobHandle for the task to
+ * complete.  The job is aborted if it doesn't complete before its deadline or
+ * the waiting thread is interrupted.
  */
 public class ThreadedAsyncExecutionSample extends ExecutionConnectionUser
 {
+    static final long DEADLINE_MINUTES = 10;
+
+    private static final String RTC_NAME = "Samples.process.rtc";
+
     /**
      * @throws com.pervasive.di.client.sdk.SDKException
      * @see com.actian.dc.clientsdk.samples.ExecutionConnectionUser#useConnection(com.pervasive.di.client.sdk.ExecutionConnection) 
@@ -32,46 +38,26 @@ public class ThreadedAsyncExecutionSample extends ExecutionConnectionUser
     public boolean useConnection(ExecutionConnection cxn) throws SDKException
     {
         // Create a new Task and feed it the RTC
-        Task task = SamplesRunner.sampleTask("Samples.process.rtc");
+        Task task = SamplesRunner.sampleTask(RTC_NAME);
         LOGGER.log(Level.INFO, "Submitting task {0}", task.getTaskName());
-        JobListener listener = new Listener(LOGGER);
-        Job job = null;
+        JobHandle handle = JobHandle.submit(getConnectionBuilder(), cxn, task,
+                SamplesRunner.sampleRuntimeConfig(RTC_NAME), new SimpleJobListener(LOGGER));
 
-        // Wait until the listener says it's ok to proceed
-        try {
-            synchronized(this) {
-                job = cxn.submit(task, listener);
-                wait();
-            }
-        } catch (InterruptedException e) {
+        // Wait for the job to end.  The handle aborts the job if it misses its
+        // deadline or this thread is interrupted, and then reports ABORTED.
+        JobStatusCode status = handle.await(DEADLINE_MINUTES, TimeUnit.MINUTES);
+        if (Thread.currentThread().isInterrupted()) {
+            LOGGER.severe("Interrupted while waiting for the job to finish");
+            return false;
         }
-
-        // Report results
-        return reportResult(job, cxn);
-    }
-    
-    /**
-     * Custom com.pervasive.di.client.sdk.JobListener instance which overrides
-     * the jobProgress method to notify the waiting thread that the job has finished.
-     */
-    public class Listener extends SimpleJobListener
-    { 
-        public Listener(Logger logger) {
-            super(logger);
+        if (handle.isDeadlineMissed()) {
+            LOGGER.log(Level.WARNING, "Job did not finish within {0} minutes", DEADLINE_MINUTES);
+            return false;
         }
+        if (status == JobStatusCode.ABORTED)
+            LOGGER.warning("Job was aborted");
 
-        /**
-         * Overridden to notify the waiting thread to wake up and finish.
-         * @see com.actian.dc.clientsdk.samples.SimpleJobListener#jobProgress(com.pervasive.di.client.sdk.JobProgress) 
-         */
-        @Override
-        public void jobProgress(JobProgress progress) {
-            super.jobProgress(progress);
-            if (isFinished()) {                
-                synchronized(ThreadedAsyncExecutionSample.this) {
-                    ThreadedAsyncExecutionSample.this.notify();
-                }
-            }
-        }
+        // Report results
+        return reportResult(handle.getJob(), cxn, task, SamplesRunner.sampleRuntimeConfig(RTC_NAME));
     }
 }
@@ -51,32 +51,11 @@ public class V9ExecutionSample extends ExecutionConnectionUser
     {
         
         // Create tasks to execute sychronously
-        List<Task> tasks = new ArrayList<>(3);
-        
-        // Configure a task that executes an artifacts in a package/djar
-        RuntimeConfig config = new RuntimeConfig();
-        config.setName("Execute packaged (in a djar) V9 artifacts");
-        config.setPackageName(PACKAGE_NAME);
-        config.setPackageVersion(PACKAGE_VERSION);
-        config.setEntryPoint(ENTRYPOINT);
-        config.addMacroDefinition(new NameValuePair(SamplesRunner.SAMPLE_DATA_MACRO_NAME, SamplesRunner.SAMPLE_DATA_MACRO_VALUE));
-        Task tempTask = new Task();
-        tempTask.populate(config);
-        tasks.add(tempTask);
-        
-        // Configure a task which executes a V9 map directly (not in a package/djar)
-        config = new RuntimeConfig();
-        config.setName("Execute *.tf.xml directly (not in a package/djar)");
-        config.setPackageName(null);  // Note that the package name is null
-        config.setEntryPoint(SamplesRunner.artifactPath(ENTRYPOINT));
-        config.addMacroDefinition(new NameValuePair(SamplesRunner.SAMPLE_DATA_MACRO_NAME, SamplesRunner.SAMPLE_DATA_MACRO_VALUE));
-        tempTask = new Task();
-        tempTask.populate(config);
-        tasks.add(tempTask);
+        List<Task> tasks = buildTasks();
         
         for (Task task: tasks) {                
             LOGGER.log(Level.INFO, "Submitting task {0}", task.getTaskName());
-            Job job = cxn.submit(task, false);
+            Job job = submit(cxn, task);
             switch (job.getJobStatus())
             {
             case FINISHED_OK:
@@ -94,10 +73,61 @@ public class V9ExecutionSample extends ExecutionConnectionUser
                 break;
             }
 
-            if (!reportResult(job, cxn))
+            if (!reportResult(job, cxn, task, null))
                 return false;
         }
         
         return true;
     }
+
+    /**
+     * @see com.actian.dc.clientsdk.samples.ExecutionConnectionUser#routingKey()
+     */
+    @Override
+    protected String routingKey() {
+        return PACKAGE_NAME;
+    }
+
+    /**
+     * Create the V9 tasks: one which runs a map from a package (djar) and one
+     * which runs the map's *.tf.xml file directly
+     * @return the tasks
+     * @throws SDKException if a task can't be populated
+     */
+    static List<Task> buildTasks() throws SDKException
+    {
+        List<Task> tasks = new ArrayList<>(3);
+        
+        // Configure a task that executes an artifacts in a package/djar
+        tasks.add(packagedTask());
+        
+        // Configure a task which executes a V9 map directly (not in a package/djar)
+        RuntimeConfig config = new RuntimeConfig();
+        config.setName("Execute *.tf.xml directly (not in a package/djar)");
+        config.setPackageName(null);  // Note that the package name is null
+        config.setEntryPoint(SamplesRunner.artifactPath(ENTRYPOINT));
+        config.addMacroDefinition(new NameValuePair(SamplesRunner.SAMPLE_DATA_MACRO_NAME, SamplesRunner.SAMPLE_DATA_MACRO_VALUE));
+        Task tempTask = new Task();
+        tempTask.populate(config);
+        tasks.add(tempTask);
+        return tasks;
+    }
+
+    /**
+     * Create the task which runs the map from the V9Samples package (djar)
+     * @return the task
+     * @throws SDKException if the task can't be populated
+     */
+    static Task packagedTask() throws SDKException
+    {
+        RuntimeConfig config = new RuntimeConfig();
+        config.setName("Execute packaged (in a djar) V9 artifacts");
+        config.setPackageName(PACKAGE_NAME);
+        config.setPackageVersion(PACKAGE_VERSION);
+        config.setEntryPoint(ENTRYPOINT);
+        config.addMacroDefinition(new NameValuePair(SamplesRunner.SAMPLE_DATA_MACRO_NAME, SamplesRunner.SAMPLE_DATA_MACRO_VALUE));
+        Task task = new Task();
+        task.populate(config);
+        return task;
+    }
 }
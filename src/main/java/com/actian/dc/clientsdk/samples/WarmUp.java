@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.SDKException;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Warms up the client and the engine(s) before a latency sensitive service
+ * starts taking traffic.  The warm-up runs in phases, each of which is timed:
+ * <ol>
+ * <li>config: load the configuration and build the ConnectionBuilder</li>
+ * <li>connect: pre-create the connections for each package that has a
+ * warm-up task, starting the local engines</li>
+ * <li>preload: read the package files so they are in the file system cache</li>
+ * <li>tasks: run a tiny task per package so its first real job is not the
+ * first to load it</li>
+ * </ol>
+ * The connections created by the warm-up are kept open by the returned
+ * ConnectionBuilder, which hands them out again to connections created with
+ * the package name as routing key.
+ */
+public class WarmUp
+{
+    private static final Logger logger = LogUtil.getLogger(WarmUp.class);
+
+    private final SamplesConfig config;
+    private final int connections;
+    private final List<File> packages = new ArrayList<>();
+    private final List<Task> tasks = new ArrayList<>();
+
+    /**
+     * @param config configuration used to build the connections
+     * @param connections number of connections to pre-create per package
+     */
+    public WarmUp(SamplesConfig config, int connections) {
+        if (connections < 1)
+            throw new IllegalArgumentException("At least one connection per package is needed");
+        this.config = config;
+        this.connections = connections;
+    }
+
+    /**
+     * Add a package file to preload
+     * @param djar the package file
+     * @return this instance
+     */
+    public WarmUp addPackage(File djar) {
+        packages.add(djar);
+        return this;
+    }
+
+    /**
+     * Add a task that is run synchronously during the warm-up, on a
+     * connection routed by the task's package.  Add one task per package,
+     * using the cheapest entry point available in it.
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @return this instance
+     */
+    public WarmUp addTask(Task task) {
+        tasks.add(task);
+        return this;
+    }
+
+    /**
+     * Run the warm-up phases in order
+     * @return the report of the warm-up, including the warmed ConnectionBuilder
+     * @throws SDKException if a connection can't be created or a task can't be submitted
+     */
+    public Report run() throws SDKException {
+        Map<String, Long> phases = new LinkedHashMap<>();
+
+        long start = System.nanoTime();
+        ConnectionBuilder cxnBuilder = new ConnectionBuilder(config);
+        long mark = System.nanoTime();
+        phases.put("config", mark - start);
+
+        // Until the report hands the builder over, a failure shuts it down so
+        // the connections opened so far are disconnected
+        boolean ok = false;
+        try {
+            Set<String> packageNames = new LinkedHashSet<>();
+            for (Task task : tasks) {
+                packageNames.add(task.getPackageName());
+            }
+            List<ExecutionConnection> opened = new ArrayList<>();
+            try {
+                for (String packageName : packageNames) {
+                    for (int i = 0; i < connections; i++) {
+                        ExecutionConnection cxn = cxnBuilder.createExecutionConnection(packageName);
+                        cxnBuilder.keepOpen(cxn, packageName);
+                        opened.add(cxn);
+                    }
+                }
+            }
+            finally {
+                // release into the builder's idle connections
+                for (ExecutionConnection cxn : opened) {
+                    cxnBuilder.release(cxn);
+                }
+            }
+            logger.log(Level.INFO, "Opened {0} connection(s) for package(s) {1}", new Object[]{opened.size(), packageNames});
+            phases.put("connect", System.nanoTime() - mark);
+            mark = System.nanoTime();
+
+            for (File djar : packages) {
+                preload(djar);
+            }
+            phases.put("preload", System.nanoTime() - mark);
+            mark = System.nanoTime();
+
+            int failed = 0;
+            for (Task task : tasks) {
+                long taskStart = System.nanoTime();
+                ExecutionConnection cxn = cxnBuilder.createExecutionConnection(task.getPackageName());
+                try {
+                    Job job = cxnBuilder.submit(cxn, task);
+                    if (job.getJobStatus() != JobStatusCode.FINISHED_OK) {
+                        failed++;
+                        logger.log(Level.WARNING, "Warm-up task {0} finished with status {1}",
+                                new Object[]{task.getTaskName(), job.getJobStatus()});
+                    }
+                } catch (SDKException | RuntimeException e) {
+                    cxnBuilder.discard(cxn);
+                    throw e;
+                }
+                cxnBuilder.release(cxn);
+                logger.log(Level.INFO, "Warm-up task {0} took {1} ms",
+                        new Object[]{task.getTaskName(), millis(System.nanoTime() - taskStart)});
+            }
+            phases.put("tasks", System.nanoTime() - mark);
+
+            Report report = new Report(cxnBuilder, phases, failed);
+            report.log();
+            ok = true;
+            return report;
+        }
+        finally {
+            if (!ok)
+                cxnBuilder.shutdown();
+        }
+    }
+
+    private static void preload(File djar) {
+        byte[] buffer = new byte[64 * 1024];
+        long bytes = 0;
+        try (InputStream in = new FileInputStream(djar)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                bytes += n;
+            }
+            logger.log(Level.INFO, "Preloaded package {0} ({1} bytes)", new Object[]{djar.getName(), bytes});
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to preload package {0}: {1}", new Object[]{djar, e.getMessage()});
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Outcome of a warm-up: the warmed connection builder and the time taken
+     * by each phase.
+     */
+    public static class Report
+    {
+        private final ConnectionBuilder cxnBuilder;
+        private final Map<String, Long> phases;
+        private final int failedTasks;
+
+        Report(ConnectionBuilder cxnBuilder, Map<String, Long> phases, int failedTasks) {
+            this.cxnBuilder = cxnBuilder;
+            this.phases = Collections.unmodifiableMap(phases);
+            this.failedTasks = failedTasks;
+        }
+
+        /**
+         * @return the builder holding the warmed connections, which should be
+         * used for all further connections
+         */
+        public ConnectionBuilder getConnectionBuilder() {
+            return cxnBuilder;
+        }
+
+        /**
+         * @return phase name to elapsed nanoseconds, in the order the phases ran
+         */
+        public Map<String, Long> getPhases() {
+            return phases;
+        }
+
+        /**
+         * @return true if every warm-up task finished successfully
+         */
+        public boolean isOk() {
+            return failedTasks == 0;
+        }
+
+        void log() {
+            long total = 0;
+            for (Map.Entry<String, Long> phase : phases.entrySet()) {
+                total += phase.getValue();
+                logger.log(Level.INFO, "Warm-up phase {0}: {1} ms", new Object[]{phase.getKey(), millis(phase.getValue())});
+            }
+            logger.log(Level.INFO, "Warm-up finished in {0} ms, {1} failed task(s)\n",
+                    new Object[]{millis(total), failedTasks});
+        }
+    }
+}
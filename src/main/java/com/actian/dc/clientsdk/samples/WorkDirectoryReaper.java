@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background task that removes the per-connection work directories of
+ * released connections.  A finished directory is removed once it is older than
+ * the configured maximum age, and the oldest finished directories are removed
+ * first whenever their combined size exceeds the configured quota.  Directories
+ * of connections that are still in use are never touched.
+ */
+class WorkDirectoryReaper
+{
+    private static final Logger logger = LogUtil.getLogger(WorkDirectoryReaper.class);
+
+    static final String CONNECTION_DIR_PREFIX = "cxn-";
+
+    private final Map<File, Long> finished = new ConcurrentHashMap<>();
+    private final Map<File, Boolean> active = new ConcurrentHashMap<>();
+    private final long maxAgeMillis;
+    private final long maxBytes;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param maxAgeMillis finished directories older than this are removed, 0 removes them on the next sweep
+     * @param maxBytes quota for the combined size of finished directories, 0 for no quota
+     * @param intervalMillis time between sweeps
+     */
+    WorkDirectoryReaper(long maxAgeMillis, long maxBytes, long intervalMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxBytes = maxBytes;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "work-directory-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register an engine work directory whose connection subdirectories are
+     * managed by this reaper.  Subdirectories left behind by earlier runs are
+     * treated as finished.
+     * @param root engine work directory
+     */
+    synchronized void addRoot(File root) {
+        File[] leftovers = root.listFiles(f -> f.isDirectory() && f.getName().startsWith(CONNECTION_DIR_PREFIX));
+        if (leftovers != null) {
+            for (File dir : leftovers) {
+                finished.putIfAbsent(dir, dir.lastModified());
+            }
+        }
+    }
+
+    /**
+     * Create a uniquely named connection work directory under a root.  The
+     * directory is registered as active before a sweep can see it, and its
+     * name never collides with a directory left behind by an earlier run.
+     * @param root engine work directory
+     * @return the new, empty directory
+     * @throws IOException if the directory can't be created
+     */
+    synchronized File createActive(File root) throws IOException {
+        File dir = createConnectionDirectory(root);
+        markActive(dir);
+        return dir;
+    }
+
+    static File createConnectionDirectory(File root) throws IOException {
+        Files.createDirectories(root.toPath());
+        return Files.createTempDirectory(root.toPath(), CONNECTION_DIR_PREFIX).toFile();
+    }
+
+    void markActive(File dir) {
+        active.put(dir, Boolean.TRUE);
+    }
+
+    void markFinished(File dir) {
+        active.remove(dir);
+        finished.put(dir, System.currentTimeMillis());
+    }
+
+    /**
+     * Stop the background sweeps and run a final sweep on the calling thread
+     */
+    void shutdown() {
+        scheduler.shutdownNow();
+        sweep();
+    }
+
+    synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<File, Long>> candidates = new ArrayList<>();
+        for (Map.Entry<File, Long> entry : finished.entrySet()) {
+            if (active.containsKey(entry.getKey()))
+                continue;
+            if (now - entry.getValue() >= maxAgeMillis)
+                remove(entry.getKey(), "expired");
+            else
+                candidates.add(entry);
+        }
+        if (maxBytes <= 0 || candidates.isEmpty())
+            return;
+
+        // Enforce the size quota by removing the oldest finished directories first
+        candidates.sort(Comparator.comparing(Map.Entry::getValue));
+        Map<File, Long> sizes = new HashMap<>();
+        long total = 0;
+        for (Map.Entry<File, Long> entry : candidates) {
+            long size = sizeOf(entry.getKey().toPath());
+            sizes.put(entry.getKey(), size);
+            total += size;
+        }
+        for (Map.Entry<File, Long> entry : candidates) {
+            if (total <= maxBytes)
+                break;
+            total -= sizes.get(entry.getKey());
+            remove(entry.getKey(), "over quota");
+        }
+    }
+
+    private void remove(File dir, String reason) {
+        finished.remove(dir);
+        try {
+            if (dir.exists()) {
+                deleteTree(dir.toPath());
+                logger.log(Level.INFO, "Removed work directory {0} ({1})", new Object[]{dir, reason});
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to remove work directory {0}: {1}", new Object[]{dir, e.getMessage()});
+        }
+    }
+
+    private static long sizeOf(Path dir) {
+        final long[] size = {0};
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    size[0] += attrs.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to size work directory {0}: {1}", new Object[]{dir, e.getMessage()});
+        }
+        return size[0];
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                if (exc != null)
+                    throw exc;
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
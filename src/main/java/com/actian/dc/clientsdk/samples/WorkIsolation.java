@@ -0,0 +1,31 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+/**
+ * Controls how engine work directories are shared between connections.
+ */
+public enum WorkIsolation
+{
+    /** All connections to an engine share the engine's work directory */
+    ENGINE,
+    /**
+     * Every connection gets its own work subdirectory, which is handed to the
+     * WorkDirectoryReaper once the connection is released.  Use a connection
+     * per job to isolate the work files of each job.
+     */
+    CONNECTION
+}
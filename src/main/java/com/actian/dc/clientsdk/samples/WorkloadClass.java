@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Task;
+import java.util.Locale;
+
+/**
+ * Kinds of workload, by the type of artifact a task runs, which differ in
+ * their start-up cost and so are scheduled separately by the WorkloadScheduler.
+ */
+public enum WorkloadClass
+{
+    /** V9 XML artifacts (*.tf.xml, *.ps.xml), packaged or run directly */
+    V9("v9"),
+    /** Maps in a package (djar) */
+    MAP("map"),
+    /** Processes in a package (djar) */
+    PROCESS("process");
+
+    private final String configKey;
+
+    WorkloadClass(String configKey) {
+        this.configKey = configKey;
+    }
+
+    /**
+     * @return the name used for the class's <code>workload.&lt;key&gt;.*</code> settings
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+
+    /**
+     * Classify a task by the file extension of its entry point
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @return the task's workload class, MAP if the entry point is not recognised
+     */
+    public static WorkloadClass of(Task task) {
+        return of(task.getEntryPoint());
+    }
+
+    /**
+     * @param entryPoint entry point of a task, may be null
+     * @return the workload class of a task with the entry point
+     */
+    static WorkloadClass of(String entryPoint) {
+        if (entryPoint == null)
+            return MAP;
+        entryPoint = entryPoint.toLowerCase(Locale.ROOT);
+        if (entryPoint.endsWith(".xml"))
+            return V9;
+        if (entryPoint.endsWith(".process"))
+            return PROCESS;
+        return MAP;
+    }
+}
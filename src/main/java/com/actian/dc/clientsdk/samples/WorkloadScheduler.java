@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.ExecutionConnection;
+import com.pervasive.di.client.sdk.Job;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.Task;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs tasks in separate lanes by WorkloadClass, each with its own connection
+ * pool, concurrency limit and latency metrics, so that slow starting V9 jobs
+ * don't hold up packaged maps and processes.  Each lane is configured with
+ * <pre>
+ * workload.&lt;key&gt;.concurrency=2
+ * workload.&lt;key&gt;.connections=2
+ * </pre>
+ * where the key is v9, map or process.  A lane runs at most its concurrency
+ * of jobs at a time, synchronously, on connections from its own pool, which
+ * defaults to one connection per concurrent job.  Classes whose tasks write
+ * the same target can be given as a shared target group; their lanes run one
+ * job at a time between them, in the order the jobs became ready.
+ */
+public class WorkloadScheduler
+{
+    private static final Logger logger = LogUtil.getLogger(WorkloadScheduler.class);
+
+    /**
+     * Submits a task and waits for its job to end
+     */
+    interface TaskRunner
+    {
+        Job run(Task task) throws Exception;
+    }
+
+    private final Map<WorkloadClass, Lane> lanes = new EnumMap<>(WorkloadClass.class);
+
+    /**
+     * @param cxnBuilder builder used to create the connections of each lane
+     * @param config the samples configuration
+     */
+    public WorkloadScheduler(ConnectionBuilder cxnBuilder, SamplesConfig config) {
+        this(cxnBuilder, config, Collections.emptyMap(), Collections.emptyList());
+    }
+
+    /**
+     * @param cxnBuilder builder used to create the connections of each lane
+     * @param config the samples configuration
+     * @param routingKeys name of the package each class's tasks run, used to
+     * route its lane's connections; classes without one are not routed by package
+     * @param sharedTargets groups of classes whose tasks write the same
+     * target file and so must not run at the same time
+     */
+    public WorkloadScheduler(ConnectionBuilder cxnBuilder, SamplesConfig config,
+            Map<WorkloadClass, String> routingKeys, Collection<? extends Set<WorkloadClass>> sharedTargets) {
+        Map<WorkloadClass, Semaphore> exclusive = exclusive(sharedTargets);
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            String prefix = "workload." + workload.getConfigKey() + ".";
+            int concurrency = concurrency(config, workload, exclusive);
+            int connections = config.getInt(prefix + "connections", concurrency);
+            ConnectionPool pool = new ConnectionPool(cxnBuilder, connections, routingKeys.get(workload));
+            lanes.put(workload, new Lane(workload, pool, task -> submit(pool, task), concurrency, exclusive.get(workload)));
+        }
+    }
+
+    /**
+     * Scheduler whose lanes run tasks with the given runner rather than on connections
+     */
+    WorkloadScheduler(SamplesConfig config, Collection<? extends Set<WorkloadClass>> sharedTargets, TaskRunner runner) {
+        Map<WorkloadClass, Semaphore> exclusive = exclusive(sharedTargets);
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            lanes.put(workload, new Lane(workload, null, runner, concurrency(config, workload, exclusive),
+                    exclusive.get(workload)));
+        }
+    }
+
+    private static Map<WorkloadClass, Semaphore> exclusive(Collection<? extends Set<WorkloadClass>> sharedTargets) {
+        Map<WorkloadClass, Semaphore> exclusive = new EnumMap<>(WorkloadClass.class);
+        for (Set<WorkloadClass> group : sharedTargets) {
+            // fair, so that one class's backlog can't starve the others
+            Semaphore semaphore = new Semaphore(1, true);
+            for (WorkloadClass workload : group) {
+                if (exclusive.put(workload, semaphore) != null)
+                    throw new IllegalArgumentException(workload + " is in more than one shared target group");
+            }
+        }
+        return exclusive;
+    }
+
+    private static int concurrency(SamplesConfig config, WorkloadClass workload, Map<WorkloadClass, Semaphore> exclusive) {
+        // a class sharing its target never has more than one job running
+        if (exclusive.containsKey(workload))
+            return 1;
+        return config.getInt("workload." + workload.getConfigKey() + ".concurrency", workload == WorkloadClass.V9 ? 1 : 2);
+    }
+
+    private static Job submit(ConnectionPool pool, Task task) throws Exception {
+        ExecutionConnection cxn = pool.borrow();
+        Job job = null;
+        try {
+            job = pool.getConnectionBuilder().submit(cxn, task);
+            return job;
+        }
+        finally {
+            // a connection whose submit failed may be broken
+            if (job != null)
+                pool.giveBack(cxn);
+            else
+                pool.discard(cxn);
+        }
+    }
+
+    /**
+     * Queue a task on the lane for its workload class
+     * @param task com.pervasive.di.client.sdk.Task instance
+     * @return future completed with the finished job
+     */
+    public CompletableFuture<Job> submit(Task task) {
+        return lanes.get(WorkloadClass.of(task)).submit(task);
+    }
+
+    /**
+     * @param workload the workload class
+     * @return the latency, from queueing a task to its job ending, of the class's jobs
+     */
+    public LatencyRecorder getLatency(WorkloadClass workload) {
+        return lanes.get(workload).latency;
+    }
+
+    /**
+     * @param workload the workload class
+     * @return the time the class's tasks waited in their lane before being submitted
+     */
+    public LatencyRecorder getQueueWait(WorkloadClass workload) {
+        return lanes.get(workload).queueWait;
+    }
+
+    /**
+     * Log the job count, failures and latency percentiles of each workload class
+     */
+    public void logMetrics() {
+        for (Lane lane : lanes.values()) {
+            if (lane.latency.getCount() == 0)
+                continue;
+            logger.log(Level.INFO, "Workload {0}: {1} job(s), {2} failed, latency p50={3}ms p99={4}ms max={5}ms, queue wait p99={6}ms",
+                    new Object[]{lane.workload, lane.latency.getCount(), lane.failed.get(),
+                        millis(lane.latency.getPercentileMicros(50)), millis(lane.latency.getPercentileMicros(99)),
+                        millis(lane.latency.getMaxMicros()), millis(lane.queueWait.getPercentileMicros(99))});
+        }
+    }
+
+    /**
+     * Stop the lanes, waiting for queued tasks to finish, and close their pools
+     * @param timeout maximum time to wait for each lane
+     * @param unit unit of the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        for (Lane lane : lanes.values()) {
+            lane.executor.shutdown();
+        }
+        try {
+            for (Lane lane : lanes.values()) {
+                if (!lane.executor.awaitTermination(timeout, unit))
+                    lane.executor.shutdownNow();
+            }
+        }
+        finally {
+            for (Lane lane : lanes.values()) {
+                if (lane.pool != null)
+                    lane.pool.close();
+            }
+        }
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.1f", micros / 1000.0);
+    }
+
+    private static class Lane
+    {
+        final WorkloadClass workload;
+        final ConnectionPool pool;
+        final TaskRunner runner;
+        final Semaphore exclusive;
+        final ExecutorService executor;
+        final LatencyRecorder latency = new LatencyRecorder();
+        final LatencyRecorder queueWait = new LatencyRecorder();
+        final AtomicLong failed = new AtomicLong();
+
+        Lane(WorkloadClass workload, ConnectionPool pool, TaskRunner runner, int concurrency, Semaphore exclusive) {
+            this.workload = workload;
+            this.pool = pool;
+            this.runner = runner;
+            this.exclusive = exclusive;
+            AtomicInteger threads = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(concurrency, r -> {
+                Thread thread = new Thread(r, "workload-" + workload.getConfigKey() + "-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        CompletableFuture<Job> submit(Task task) {
+            long queuedNanos = System.nanoTime();
+            CompletableFuture<Job> future = new CompletableFuture<>();
+            executor.execute(() -> {
+                Job job = null;
+                Exception error = null;
+                try {
+                    if (exclusive != null)
+                        exclusive.acquire();
+                    try {
+                        // includes any wait for another class's job writing the same target
+                        queueWait.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedNanos));
+                        job = runner.run(task);
+                    }
+                    finally {
+                        if (exclusive != null)
+                            exclusive.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error = e;
+                } catch (Exception e) {
+                    error = e;
+                }
+                // record before completing so the metrics include every completed job
+                latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedNanos));
+                if (job == null || job.getJobStatus() != JobStatusCode.FINISHED_OK)
+                    failed.incrementAndGet();
+                if (error != null)
+                    future.completeExceptionally(error);
+                else
+                    future.complete(job);
+            });
+            return future;
+        }
+    }
+}
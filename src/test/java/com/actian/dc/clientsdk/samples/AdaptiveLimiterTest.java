@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdaptiveLimiterTest
+{
+    private static final long LOW = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long HIGH = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initialLimitMustBeWithinBounds() {
+        new AdaptiveLimiter(8, 1, 4, 2.0, 0.9, 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backoffMustReduceTheLimit() {
+        new AdaptiveLimiter(4, 1, 64, 2.0, 1.5, 0.1);
+    }
+
+    @Test
+    public void maxErrorRateMustBeARate() {
+        for (double rate : new double[] { 0, -0.1, 1.5, Double.NaN }) {
+            try {
+                new AdaptiveLimiter(4, 1, 64, 2.0, 0.9, rate);
+                fail("accepted maxErrorRate " + rate);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("error rate"));
+            }
+        }
+        new AdaptiveLimiter(4, 1, 64, 2.0, 0.9, 1.0);
+    }
+
+    @Test
+    public void acquireWaitsForASlot() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 2, 2.0, 0.9, 0.1);
+        limiter.acquire();
+        limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limiter.finished(LOW, true);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(2, limiter.getInFlight());
+        waiter.join();
+    }
+
+    @Test
+    public void limitGrowsWhileFullAndDelayIsSteady() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 64, 2.0, 0.9, 0.1);
+        fill(limiter);
+        for (int i = 0; i < 100; i++) {
+            limiter.finished(LOW, true);
+            fill(limiter);
+        }
+        // about one job per limit's worth of jobs: sqrt(2 * 100 + 4 * 4) is 14.7
+        assertTrue("limit " + limiter.getLimit(), limiter.getLimit() >= 12 && limiter.getLimit() <= 15);
+    }
+
+    @Test
+    public void limitStopsAtMax() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 6, 2.0, 0.9, 0.1);
+        fill(limiter);
+        for (int i = 0; i < 200; i++) {
+            limiter.finished(LOW, true);
+            fill(limiter);
+        }
+        assertEquals(6, limiter.getLimit());
+    }
+
+    @Test
+    public void queueDelayAboveToleranceBacksOffOncePerLimitOfJobs() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 64, 2.0, 0.5, 0.1);
+        for (int i = 0; i < 10; i++) {
+            sample(limiter, LOW, true);
+        }
+        assertEquals(10, limiter.getLimit());
+        sample(limiter, HIGH, true);
+        assertEquals(5, limiter.getLimit());
+        // further congestion within the next limit's worth of jobs is ignored
+        for (int i = 0; i < 4; i++) {
+            sample(limiter, HIGH, true);
+        }
+        assertEquals(5, limiter.getLimit());
+        sample(limiter, HIGH, true);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void delayWithinSlackDoesNotBackOff() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 64, 2.0, 0.5, 0.1);
+        for (int i = 0; i < 20; i++) {
+            sample(limiter, i % 2 == 0 ? LOW : TimeUnit.MILLISECONDS.toNanos(6), true);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void failuresAboveMaxErrorRateBackOffButNotBelowMin() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 2, 64, 2.0, 0.5, 0.1);
+        for (int i = 0; i < 4; i++) {
+            sample(limiter, LOW, true);
+        }
+        // one failure raises the smoothed error rate to 0.1, not above it
+        sample(limiter, -1, false);
+        assertEquals(4, limiter.getLimit());
+        for (int i = 0; i < 20; i++) {
+            sample(limiter, -1, false);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void baselineFollowsARiseInUncongestedDelay() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(64, 1, 64, 2.0, 0.9, 0.1);
+        for (int i = 0; i < 100; i++) {
+            sample(limiter, LOW, true);
+        }
+        // the previous window's baseline applies for the whole next window,
+        // which backs off twice: after its first job and 58 jobs later
+        for (int i = 0; i < 100; i++) {
+            sample(limiter, HIGH, true);
+        }
+        assertEquals(51, limiter.getLimit());
+        // after which the higher delay is the baseline and no longer congestion
+        for (int i = 0; i < 100; i++) {
+            sample(limiter, HIGH, true);
+        }
+        assertEquals(51, limiter.getLimit());
+        sample(limiter, 3 * HIGH, true);
+        assertEquals(46, limiter.getLimit());
+    }
+
+    @Test
+    public void baselineDropsAsSoonAsALowerDelayIsSeen() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(8, 1, 64, 2.0, 0.5, 0.1);
+        for (int i = 0; i < 8; i++) {
+            sample(limiter, HIGH, true);
+        }
+        sample(limiter, LOW, true);
+        assertEquals(8, limiter.getLimit());
+        sample(limiter, HIGH, true);
+        assertEquals(4, limiter.getLimit());
+    }
+
+    private static void sample(AdaptiveLimiter limiter, long delayNanos, boolean ok) throws InterruptedException {
+        limiter.acquire();
+        limiter.finished(delayNanos, ok);
+    }
+
+    private static void fill(AdaptiveLimiter limiter) throws InterruptedException {
+        while (limiter.getInFlight() < limiter.getLimit()) {
+            limiter.acquire();
+        }
+    }
+}
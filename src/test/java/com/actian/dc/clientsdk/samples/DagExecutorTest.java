@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DagExecutorTest
+{
+    @Test
+    public void dependenciesRunFirst() throws InterruptedException {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        TaskGraph graph = new TaskGraph()
+                .add("map", new Task())
+                .add("process", new Task(), "map")
+                .add("processEntryPoint", new Task(), "process");
+        Map<String, DagExecutor.Outcome> outcomes = new DagExecutor((id, task) -> order.add(id), 4).execute(graph);
+        assertEquals(Arrays.asList("map", "process", "processEntryPoint"), order);
+        for (DagExecutor.Outcome outcome : outcomes.values()) {
+            assertEquals(DagExecutor.Outcome.SUCCEEDED, outcome);
+        }
+    }
+
+    @Test
+    public void independentBranchesRunInParallel() throws InterruptedException {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        TaskGraph graph = new TaskGraph().add("a", new Task()).add("b", new Task());
+        Map<String, DagExecutor.Outcome> outcomes = new DagExecutor((id, task) -> {
+            bothRunning.countDown();
+            return bothRunning.await(10, TimeUnit.SECONDS);
+        }, 2).execute(graph);
+        assertEquals(DagExecutor.Outcome.SUCCEEDED, outcomes.get("a"));
+        assertEquals(DagExecutor.Outcome.SUCCEEDED, outcomes.get("b"));
+    }
+
+    @Test
+    public void failureCancelsOnlyDownstream() throws InterruptedException {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        TaskGraph graph = new TaskGraph()
+                .add("a", new Task())
+                .add("b", new Task(), "a")
+                .add("c", new Task(), "b")
+                .add("d", new Task())
+                .add("e", new Task(), "d");
+        Map<String, DagExecutor.Outcome> outcomes = new DagExecutor((id, task) -> {
+            ran.add(id);
+            if (id.equals("b"))
+                throw new IllegalStateException("submit failed");
+            return true;
+        }, 2).execute(graph);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), new ArrayList<>(outcomes.keySet()));
+        assertEquals(DagExecutor.Outcome.SUCCEEDED, outcomes.get("a"));
+        assertEquals(DagExecutor.Outcome.FAILED, outcomes.get("b"));
+        assertEquals(DagExecutor.Outcome.CANCELLED, outcomes.get("c"));
+        assertEquals(DagExecutor.Outcome.SUCCEEDED, outcomes.get("d"));
+        assertEquals(DagExecutor.Outcome.SUCCEEDED, outcomes.get("e"));
+        assertFalse(ran.contains("c"));
+    }
+
+    @Test
+    public void unsuccessfulTaskIsFailed() throws InterruptedException {
+        TaskGraph graph = new TaskGraph().add("a", new Task()).add("b", new Task(), "a");
+        Map<String, DagExecutor.Outcome> outcomes = new DagExecutor((id, task) -> false, 1).execute(graph);
+        assertEquals(DagExecutor.Outcome.FAILED, outcomes.get("a"));
+        assertEquals(DagExecutor.Outcome.CANCELLED, outcomes.get("b"));
+        assertEquals(2, outcomes.size());
+    }
+}
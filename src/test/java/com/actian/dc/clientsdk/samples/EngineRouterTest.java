@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EngineRouterTest
+{
+    private static List<EngineEndpoint> endpoints(int count) {
+        List<EngineEndpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            endpoints.add(new EngineEndpoint("engine" + i, new Properties()));
+        }
+        return endpoints;
+    }
+
+    @Test
+    public void roundRobinCyclesThroughEngines() {
+        List<EngineEndpoint> endpoints = endpoints(3);
+        EngineRouter router = new EngineRouter(endpoints, RoutingPolicy.ROUND_ROBIN);
+        for (int i = 0; i < 6; i++) {
+            assertSame(endpoints.get(i % 3), router.select(null));
+        }
+    }
+
+    @Test
+    public void selectReservesAConnection() {
+        List<EngineEndpoint> endpoints = endpoints(1);
+        EngineRouter router = new EngineRouter(endpoints, RoutingPolicy.ROUND_ROBIN);
+        router.select(null);
+        router.select(null);
+        assertEquals(2, endpoints.get(0).getConnections());
+    }
+
+    @Test
+    public void leastOutstandingPrefersFewestJobsInFlight() {
+        List<EngineEndpoint> endpoints = endpoints(2);
+        EngineRouter router = new EngineRouter(endpoints, RoutingPolicy.LEAST_OUTSTANDING);
+        EngineEndpoint busy = endpoints.get(0);
+        EngineEndpoint idle = endpoints.get(1);
+        // the idle engine has more connections, but no jobs running on them
+        idle.reserveConnection();
+        idle.reserveConnection();
+        busy.jobStarted();
+        busy.jobStarted();
+        for (int i = 0; i < 4; i++) {
+            assertSame(idle, router.select(null));
+        }
+        busy.jobEnded();
+        busy.jobEnded();
+        assertSame(busy, router.select(null));
+    }
+
+    @Test
+    public void leastOutstandingBreaksTiesOnConnections() {
+        List<EngineEndpoint> endpoints = endpoints(2);
+        EngineRouter router = new EngineRouter(endpoints, RoutingPolicy.LEAST_OUTSTANDING);
+        for (int i = 0; i < 10; i++) {
+            router.select(null);
+        }
+        assertEquals(5, endpoints.get(0).getConnections());
+        assertEquals(5, endpoints.get(1).getConnections());
+    }
+
+    @Test
+    public void concurrentSelectionsAreBalanced() throws InterruptedException {
+        List<EngineEndpoint> endpoints = endpoints(2);
+        EngineRouter router = new EngineRouter(endpoints, RoutingPolicy.LEAST_OUTSTANDING);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    router.select(null);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400, endpoints.get(0).getConnections());
+        assertEquals(400, endpoints.get(1).getConnections());
+    }
+
+    @Test
+    public void packageHashIsStableAndSpreadsPackages() {
+        List<EngineEndpoint> endpoints = endpoints(3);
+        EngineRouter router = new EngineRouter(endpoints, RoutingPolicy.PACKAGE_HASH);
+        Set<EngineEndpoint> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            EngineEndpoint first = router.select("Package" + i);
+            assertSame(first, router.select("Package" + i));
+            used.add(first);
+        }
+        assertEquals(new HashSet<>(endpoints), used);
+    }
+
+    @Test
+    public void packageHashKeepsPackagesWhenAnEngineIsAdded() {
+        EngineRouter three = new EngineRouter(endpoints(3), RoutingPolicy.PACKAGE_HASH);
+        List<EngineEndpoint> fourEndpoints = endpoints(4);
+        EngineRouter four = new EngineRouter(fourEndpoints, RoutingPolicy.PACKAGE_HASH);
+        int moved = 0;
+        for (int i = 0; i < 1000; i++) {
+            String key = "Package" + i;
+            EngineEndpoint after = four.select(key);
+            if (!three.select(key).getName().equals(after.getName())) {
+                // packages only move to the new engine
+                assertSame(fourEndpoints.get(3), after);
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved, moved > 100 && moved < 400);
+    }
+
+    @Test
+    public void packageHashWithoutKeyUsesRoundRobin() {
+        List<EngineEndpoint> endpoints = endpoints(2);
+        EngineRouter router = new EngineRouter(endpoints, RoutingPolicy.PACKAGE_HASH);
+        assertEquals(Arrays.asList(endpoints.get(0), endpoints.get(1), endpoints.get(0)),
+                Arrays.asList(router.select(null), router.select(null), router.select(null)));
+    }
+}
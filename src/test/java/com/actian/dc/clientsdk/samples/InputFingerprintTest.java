@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InputFingerprintTest
+{
+    private static final String MAP_ENTRY_POINT = "Samples-1.0/map_invoices_ascii_to_ascii_m.map";
+
+    private File dir;
+    private File source;
+    private RuntimeConfigFile mapRtc;
+    private MacroSet macros;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("fingerprint").toFile();
+        source = new File(dir, "invoices_src.txt");
+        Files.write(source.toPath(), "\"1\",\"a\"\r\n".getBytes(StandardCharsets.UTF_8));
+        mapRtc = RuntimeConfigFile.read(new File("src/main/artifacts/Samples.map.rtc"));
+        macros = MacroSet.of(Collections.singletonMap("samples", dir.getAbsolutePath()));
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void unchangedInputsGiveSameFingerprint() throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint(false);
+        assertEquals(fingerprint.compute(mapRtc, MAP_ENTRY_POINT, null, macros),
+                fingerprint.compute(mapRtc, MAP_ENTRY_POINT, null, macros));
+    }
+
+    @Test
+    public void changedSourceChangesFingerprint() throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint(false);
+        String before = fingerprint.compute(mapRtc, MAP_ENTRY_POINT, null, macros);
+        Files.write(source.toPath(), "\"1\",\"a\"\r\n\"2\",\"b\"\r\n".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(before, fingerprint.compute(mapRtc, MAP_ENTRY_POINT, null, macros));
+    }
+
+    @Test
+    public void contentHashSeesRewriteWithSameSizeAndTime() throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint(true);
+        long modified = source.lastModified();
+        String before = fingerprint.compute(mapRtc, MAP_ENTRY_POINT, null, macros);
+        Files.write(source.toPath(), "\"9\",\"z\"\r\n".getBytes(StandardCharsets.UTF_8));
+        source.setLastModified(modified);
+        assertNotEquals(before, fingerprint.compute(mapRtc, MAP_ENTRY_POINT, null, macros));
+    }
+
+    @Test
+    public void entryPointAndMacrosChangeFingerprintAndKey() throws IOException {
+        InputFingerprint fingerprint = new InputFingerprint(false);
+        MacroSet other = macros.overlay(MacroSet.of(Collections.singletonMap("run", "2")));
+        String before = fingerprint.compute(mapRtc, MAP_ENTRY_POINT, null, macros);
+        assertNotEquals(before, fingerprint.compute(mapRtc, "Samples-1.0/other.map", null, macros));
+        assertNotEquals(before, fingerprint.compute(mapRtc, MAP_ENTRY_POINT, null, other));
+
+        File rtcFile = mapRtc.getFile();
+        String key = InputFingerprint.key(rtcFile, MAP_ENTRY_POINT, macros);
+        assertEquals(key, InputFingerprint.key(rtcFile, MAP_ENTRY_POINT, macros));
+        assertNotEquals(key, InputFingerprint.key(rtcFile, "Samples-1.0/other.map", macros));
+        assertNotEquals(key, InputFingerprint.key(rtcFile, MAP_ENTRY_POINT, other));
+    }
+
+    @Test
+    public void onlyTasksDescribedByTheirDatasetsCanBeSkipped() throws IOException {
+        assertTrue(IncrementalExecutor.canSkip(mapRtc, MAP_ENTRY_POINT, macros));
+        assertFalse(IncrementalExecutor.canSkip(mapRtc,
+                "Samples-1.0/process_map_invoices_ascii_to_ascii_p.process", macros));
+        RuntimeConfigFile processRtc = RuntimeConfigFile.read(new File("src/main/artifacts/Samples.process.rtc"));
+        assertFalse(IncrementalExecutor.canSkip(processRtc, processRtc.getEntryPoint(), macros));
+    }
+}
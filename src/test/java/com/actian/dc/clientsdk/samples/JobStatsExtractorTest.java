@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class JobStatsExtractorTest
+{
+    private final JobStatsExtractor extractor = new JobStatsExtractor();
+
+    @Test
+    public void countsAreSummedOverTheTransformationsOfAProcess() throws IOException {
+        JobStats stats = extractor.extract(null, fixture("process-job.log"), null, MacroSet.EMPTY);
+        assertEquals(1250, stats.getRecordsRead());
+        assertEquals(1248, stats.getRecordsWritten());
+        assertEquals(2, stats.getRejects());
+    }
+
+    @Test
+    public void elapsedTimeIsTakenFromTheSummaryLine() throws IOException {
+        JobStats stats = extractor.extract(null, fixture("process-job.log"), null, MacroSet.EMPTY);
+        assertEquals(1582, stats.getElapsedMillis());
+        assertEquals(1250 * 1000.0 / 1582, stats.getRowsPerSecond(), 0.001);
+    }
+
+    @Test
+    public void reportedFileNamesAreNotCounts() {
+        JobStats stats = extractor.extract(null,
+                "Reject file: /opt/samples/rejects2019.txt\nRead file: records2.txt\n", null, MacroSet.EMPTY);
+        assertEquals(-1, stats.getRecordsRead());
+        assertEquals(-1, stats.getRejects());
+    }
+
+    @Test
+    public void elapsedTimeFallsBackToTheLogTimestamps() {
+        assertEquals(2250, JobStatsExtractor.elapsedMillis(
+                "2019-10-17 10:21:33.500 INFO  started\n2019-10-17 10:21:35.750 INFO  ended\n"));
+        assertEquals(1500, JobStatsExtractor.elapsedMillis("Execution time = 1.5 seconds"));
+    }
+
+    @Test
+    public void unknownValuesAreReportedAsMinusOne() {
+        JobStats stats = extractor.extract(null, null, null, MacroSet.EMPTY);
+        assertEquals(-1, stats.getRecordsRead());
+        assertEquals(-1, stats.getRecordsWritten());
+        assertEquals(-1, stats.getRejects());
+        assertEquals(-1, stats.getSourceBytes());
+        assertEquals(-1, stats.getTargetBytes());
+        assertEquals(-1, stats.getElapsedMillis());
+        assertEquals(-1, stats.getRowsPerSecond(), 0);
+    }
+
+    @Test
+    public void unrecognisedLogIsReported() {
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(JobStatsExtractor.class.getName());
+        logger.addHandler(handler);
+        try {
+            JobStats stats = extractor.extract(null, "Job completed: 12 rows moved\n", null, MacroSet.EMPTY);
+            assertEquals(-1, stats.getRecordsRead());
+            assertEquals(1, records.size());
+            assertEquals(Level.WARNING, records.get(0).getLevel());
+            assertTrue(Arrays.asList(records.get(0).getParameters()).toString().contains("records read"));
+        }
+        finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    @Test
+    public void sizesAreThoseOfTheRuntimeConfigurationDatasets() throws IOException {
+        File dir = Files.createTempDirectory("stats").toFile();
+        File source = new File(dir, "invoices_src.txt");
+        File target = new File(dir, "invoices_trg.txt");
+        try {
+            Files.write(source.toPath(), "\"1\",\"a\"\r\n\"2\",\"b\"\r\n".getBytes(StandardCharsets.UTF_8));
+            Files.write(target.toPath(), "1,a\r\n".getBytes(StandardCharsets.UTF_8));
+            Map<String, String> macros = new HashMap<>();
+            macros.put("samples", dir.getAbsolutePath());
+            macros.put("target", target.getAbsolutePath());
+            JobStats stats = extractor.extract(null, "", new File("src/main/artifacts/Samples.map.rtc"),
+                    MacroSet.of(macros));
+            assertEquals(source.length(), stats.getSourceBytes());
+            assertEquals(target.length(), stats.getTargetBytes());
+        }
+        finally {
+            source.delete();
+            target.delete();
+            dir.delete();
+        }
+    }
+
+    private static String fixture(String name) throws IOException {
+        try (InputStream in = JobStatsExtractorTest.class.getResourceAsStream("/" + name)) {
+            assertNotNull("Missing test resource " + name, in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.JobListener;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import com.pervasive.di.client.sdk.Task;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JobTracerTest
+{
+    private File dir;
+    private File file;
+    private JobTracer tracer;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("tracer").toFile();
+        file = new File(dir, JobTracer.TRACE_FILE_NAME);
+        tracer = new JobTracer(new FileSpanExporter(file), 1.0);
+    }
+
+    @After
+    public void tearDown() {
+        tracer.close();
+        file.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void endedJobIsWrittenOnceWithEachTransition() throws IOException {
+        JobSpan span = tracer.start(new Task("Samples", "1.0"), null);
+        assertNotNull(span);
+        tracer.record(span, "job-1", JobStatusCode.QUEUED);
+        tracer.record(span, "job-1", JobStatusCode.QUEUED);
+        tracer.record(span, "job-1", JobStatusCode.RUNNING);
+        tracer.record(span, "job-1", JobStatusCode.FINISHED_OK);
+        tracer.record(span, "job-1", JobStatusCode.FINISHED_OK);
+        tracer.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        String json = lines.get(0);
+        assertEquals(json.indexOf("\"queued\""), json.lastIndexOf("\"queued\""));
+        assertTrue(json.contains("\"dc.job_id\":\"job-1\""));
+        assertTrue(json.contains("\"dc.status\":\"FINISHED_OK\""));
+        assertFalse(json.contains("\"dc.rtc\""));
+    }
+
+    @Test
+    public void spanNamesTheRuntimeConfiguration() throws IOException {
+        JobSpan span = tracer.start(new Task("Samples", "1.0"), new File("artifacts", "Samples.map.rtc"));
+        tracer.record(span, "job-2", JobStatusCode.FINISHED_OK);
+        tracer.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0), lines.get(0).contains("\"dc.rtc\":\"Samples.map.rtc\""));
+    }
+
+    @Test
+    public void nothingIsTracedAfterClose() throws IOException {
+        JobSpan running = tracer.start(new Task("Samples", "1.0"), null);
+        tracer.close();
+        tracer.record(running, "job-1", JobStatusCode.FINISHED_OK);
+
+        assertNull(tracer.start(new Task("Samples", "1.0"), null));
+        JobListener delegate = new SimpleJobListener(LogUtil.getLogger(JobTracerTest.class));
+        assertSame(delegate, tracer.trace(new Task("Samples", "1.0"), delegate));
+        assertTrue(!file.exists() || Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).isEmpty());
+    }
+
+    @Test
+    public void unsampledJobsAreNotTraced() {
+        JobTracer none = new JobTracer(null, 0);
+        JobListener delegate = new SimpleJobListener(LogUtil.getLogger(JobTracerTest.class));
+        assertNull(none.start(new Task("Samples", "1.0"), null));
+        assertSame(delegate, none.trace(new Task("Samples", "1.0"), delegate));
+    }
+}
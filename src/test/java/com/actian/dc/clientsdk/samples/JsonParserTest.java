@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class JsonParserTest
+{
+    private static void assertRejected(String text) {
+        try {
+            JsonParser.parse(text);
+            fail("Parsed " + text);
+        } catch (IllegalArgumentException e) {
+            assertEquals(IllegalArgumentException.class, e.getClass());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void parsesValues() {
+        Map<String, Object> root = (Map<String, Object>)JsonParser.parse(
+                "{\"name\":\"a\\tb\\u00e9\",\"n\":-1.5e2,\"ok\":true,\"none\":null,\"list\":[1,\"x\"]}");
+        assertEquals("a\tb\u00e9", root.get("name"));
+        assertEquals(-150.0, (Double)root.get("n"), 0.0);
+        assertEquals(Boolean.TRUE, root.get("ok"));
+        assertNull(root.get("none"));
+        assertEquals(Arrays.asList(1.0, "x"), root.get("list"));
+    }
+
+    @Test
+    public void rejectsTrailingBackslash() {
+        assertRejected("\"abc\\");
+    }
+
+    @Test
+    public void rejectsShortUnicodeEscape() {
+        assertRejected("\"\\u12");
+        assertRejected("\"\\u12\"");
+    }
+
+    @Test
+    public void rejectsNonHexUnicodeEscape() {
+        assertRejected("\"\\u12zz\"");
+        assertRejected("\"\\u+123\"");
+    }
+
+    @Test
+    public void rejectsMalformedNumber() {
+        assertRejected("[1-2]");
+    }
+}
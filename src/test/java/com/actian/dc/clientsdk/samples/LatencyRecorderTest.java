@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyRecorderTest
+{
+    @Test
+    public void emptyRecorderReportsZero() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        assertEquals(0, recorder.getCount());
+        assertEquals(0, recorder.getPercentileMicros(99));
+        assertEquals(0.0, recorder.getMeanMicros(), 0.0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 50; i++) {
+            recorder.record(i);
+        }
+        assertEquals(25, recorder.getPercentileMicros(50));
+        assertEquals(50, recorder.getPercentileMicros(100));
+        assertEquals(1, recorder.getPercentileMicros(0));
+        assertEquals(25.5, recorder.getMeanMicros(), 1e-9);
+    }
+
+    @Test
+    public void negativeValuesCountAsZero() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(-5);
+        assertEquals(0, recorder.getMaxMicros());
+        assertEquals(1, recorder.getCount());
+    }
+
+    @Test
+    public void bucketsCoverEveryValue() {
+        long previousUpper = -1;
+        for (int i = 0; i < LatencyRecorder.index(Long.MAX_VALUE); i++) {
+            long upper = LatencyRecorder.upperBound(i);
+            assertTrue(upper > previousUpper);
+            assertEquals(i, LatencyRecorder.index(upper));
+            assertEquals(i, LatencyRecorder.index(previousUpper + 1));
+            previousUpper = upper;
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinThreePercent() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        List<Long> values = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long value = (long)(Math.exp(random.nextGaussian() * 1.5 + 9));
+            values.add(value);
+            recorder.record(value);
+        }
+        values.sort(null);
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values.get((int)Math.ceil(percentile / 100 * values.size()) - 1);
+            long reported = recorder.getPercentileMicros(percentile);
+            assertTrue(percentile + ": " + reported + " vs " + exact,
+                    reported >= exact && reported <= exact * 1.04);
+        }
+        assertEquals(values.get(values.size() - 1).longValue(), recorder.getPercentileMicros(100));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    recorder.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000, recorder.getCount());
+        assertEquals(9999, recorder.getMaxMicros());
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Task;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LoadGeneratorTest
+{
+    @Test
+    public void blockingSubmitDoesNotDelayArrivals() throws InterruptedException {
+        LoadGenerator.Settings settings = LoadGenerator.Settings.parse(
+                Arrays.asList("rate=50", "duration=1", "arrival=constant", "drain=10"));
+        JobSubmitter blocking = new JobSubmitter() {
+            @Override
+            public void submit(Task task, Completion completion) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                completion.done(true);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        long start = System.nanoTime();
+        LoadGenerator.Result result = new LoadGenerator(settings, blocking, sequence -> new Task()).run();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // one submission thread would take 50 x 200 ms
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 3000);
+        assertEquals(50, result.getSubmitted());
+        assertEquals(50, result.getCompleted());
+        assertEquals(0, result.getIncomplete());
+        assertEquals(0, result.getDelayed());
+        assertTrue(result.getLatency().getPercentileMicros(50) >= 200_000);
+    }
+
+    @Test
+    public void throughputExcludesTheDrain() throws InterruptedException {
+        LoadGenerator.Settings settings = LoadGenerator.Settings.parse(
+                Arrays.asList("rate=20", "duration=1", "arrival=constant", "drain=10"));
+        JobSubmitter slow = new JobSubmitter() {
+            @Override
+            public void submit(Task task, Completion completion) {
+                new Thread(() -> {
+                    try {
+                        Thread.sleep(1500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    completion.done(true);
+                }).start();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        LoadGenerator.Result result = new LoadGenerator(settings, slow, sequence -> new Task()).run();
+        assertEquals(20, result.getCompleted());
+        // every job completes after the one second arrival window
+        assertEquals(0.0, result.getThroughput(), 0.0);
+        assertTrue(result.getElapsedNanos() > TimeUnit.MILLISECONDS.toNanos(1500));
+    }
+
+    @Test
+    public void closedLoopKeepsConcurrencyJobsInFlight() throws InterruptedException {
+        LoadGenerator.Settings settings = LoadGenerator.Settings.parse(
+                Arrays.asList("concurrency=4", "duration=1", "drain=10"));
+        SimulatedJobSubmitter standIn = new SimulatedJobSubmitter(4, 20);
+        LoadGenerator.Result result;
+        try {
+            result = new LoadGenerator(settings, standIn, sequence -> new Task()).run();
+        }
+        finally {
+            standIn.close();
+        }
+        // capacity is 4 slots / 20 ms = 200 jobs/s, far above the default rate of 1
+        assertTrue("throughput " + result.getThroughput(),
+                result.getThroughput() > 100 && result.getThroughput() <= 200);
+        assertEquals(0, result.getIncomplete());
+        assertEquals(result.getSubmitted(), result.getSubmitLatency().getCount());
+        // no job waits for a slot, so latency is close to the service time
+        assertTrue(result.getServiceLatency().getPercentileMicros(50) < 40_000);
+    }
+
+    @Test
+    public void fullBacklogDropsArrivals() throws InterruptedException {
+        LoadGenerator.Settings settings = LoadGenerator.Settings.parse(
+                Arrays.asList("rate=50", "duration=1", "arrival=constant", "drain=10", "submitters=2", "backlog=3"));
+        JobSubmitter blocking = new JobSubmitter() {
+            @Override
+            public void submit(Task task, Completion completion) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                completion.done(true);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        LoadGenerator.Result result = new LoadGenerator(settings, blocking, sequence -> new Task()).run();
+
+        // two threads taking 200 ms each can't keep up with 50 arrivals a second
+        assertTrue("dropped " + result.getDropped(), result.getDropped() > 0);
+        assertTrue("delayed " + result.getDelayed(), result.getDelayed() > 0);
+        assertEquals(50, result.getSubmitted() + result.getDropped());
+        assertEquals(result.getSubmitted(), result.getCompleted());
+        assertEquals(0, result.getIncomplete());
+    }
+
+    @Test
+    public void negativeConcurrencyIsNamed() {
+        try {
+            LoadGenerator.Settings.parse(Arrays.asList("concurrency=-1"));
+            fail("Accepted a negative concurrency");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("concurrency"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSettingIsRejected() {
+        LoadGenerator.Settings.parse(Arrays.asList("speed=3"));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MacroSetTest
+{
+    private static MacroSet macros(String... namesAndValues) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            map.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return MacroSet.of(map);
+    }
+
+    private static File rtc(String text) throws IOException {
+        File file = File.createTempFile("macros", ".rtc");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void emptyMapGivesEmptySet() {
+        assertSame(MacroSet.EMPTY, MacroSet.of(null));
+        assertSame(MacroSet.EMPTY, MacroSet.of(Collections.emptyMap()));
+        assertTrue(MacroSet.EMPTY.isEmpty());
+    }
+
+    @Test
+    public void laterLayersTakePrecedence() {
+        MacroSet global = macros("samples", "/data", "env", "test");
+        MacroSet job = macros("env", "prod", "run", "7");
+        MacroSet merged = global.overlay(job);
+        assertEquals("/data", merged.get("samples"));
+        assertEquals("prod", merged.get("env"));
+        assertEquals("7", merged.get("run"));
+        assertEquals("test", global.get("env"));
+        assertNull(global.get("run"));
+    }
+
+    @Test
+    public void overlayOfNothingReturnsSameSet() {
+        MacroSet global = macros("samples", "/data");
+        assertSame(global, global.overlay(MacroSet.EMPTY));
+        assertSame(global, global.overlay(null));
+        assertSame(global, MacroSet.EMPTY.overlay(global));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void setCannotBeModified() {
+        macros("samples", "/data").asMap().put("other", "x");
+    }
+
+    @Test
+    public void resolveReplacesKnownReferences() {
+        MacroSet set = macros("samples", "/data");
+        assertEquals("/data/invoices.txt", set.resolve("$(samples)/invoices.txt"));
+        assertEquals("/data/invoices.txt", set.resolve("%24(samples)/invoices.txt"));
+        assertEquals("$(other)/x", set.resolve("$(other)/x"));
+        assertNull(set.resolve(null));
+    }
+
+    @Test
+    public void unresolvedIgnoresDefinedMacros() throws IOException {
+        File file = rtc("{\"entryPoint\":\"$(samples)/a.map\",\"source\":\"$(input)/b.txt\","
+                + "\"target\":\"$(local)/c.txt\",\"macroDefinitions\":[{\"name\":\"local\",\"value\":\"/tmp\"}]}");
+        assertEquals(new HashSet<>(Arrays.asList("input")), macros("samples", "/data").unresolved(file));
+        assertTrue(macros("samples", "/data", "input", "/in").unresolved(file).isEmpty());
+    }
+
+    @Test
+    public void unresolvedSeesChangedFile() throws IOException {
+        File file = rtc("{\"source\":\"$(samples)/b.txt\"}");
+        MacroSet set = macros("samples", "/data");
+        assertTrue(set.unresolved(file).isEmpty());
+        Files.write(file.toPath(), "{\"source\":\"$(samples)/b.txt\",\"target\":\"$(out)/c.txt\"}"
+                .getBytes(StandardCharsets.UTF_8));
+        assertFalse(set.unresolved(file).isEmpty());
+    }
+
+    @Test
+    public void referenceCacheIsBounded() throws IOException {
+        MacroSet set = macros("samples", "/data");
+        for (int i = 0; i < 300; i++) {
+            set.unresolved(rtc("{\"source\":\"$(samples)/" + i + ".txt\"}"));
+        }
+        assertTrue(MacroSet.cachedReferenceCount() <= 256);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PerformanceGateTest
+{
+    @Test
+    public void throughputMayNotDropBeyondAllowance() {
+        assertTrue(PerformanceGate.check("throughput", 181, "200", -10, 0));
+        assertFalse(PerformanceGate.check("throughput", 179, "200", -10, 0));
+        assertTrue(PerformanceGate.check("throughput", 500, "200", -10, 0));
+    }
+
+    @Test
+    public void latencyMayNotRiseBeyondAllowanceAndSlack() {
+        assertTrue(PerformanceGate.check("p99", 2.2, "1.0", 25, 1));
+        assertFalse(PerformanceGate.check("p99", 2.3, "1.0", 25, 1));
+        assertFalse(PerformanceGate.check("p99", 1.3, "1.0", 25, 0));
+    }
+
+    @Test
+    public void missingBaselinePasses() {
+        assertTrue(PerformanceGate.check("p99", 100, null, 25, 1));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RunLedgerTest
+{
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("ledger").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void missingLedgerHasNoRuns() throws IOException {
+        assertNull(new RunLedger(new File(dir, "none.properties")).lastSuccess("task"));
+    }
+
+    @Test
+    public void successesAreKeptAcrossInstances() throws IOException {
+        File file = new File(dir, "sub/ledger.properties");
+        RunLedger ledger = new RunLedger(file);
+        ledger.recordSuccess("/a/Samples.map.rtc|x.map|0123", "f1");
+        ledger.recordSuccess("/a/Samples.map.rtc|y.map|0123", "f2");
+        ledger.recordSuccess("/a/Samples.map.rtc|x.map|0123", "f3");
+
+        RunLedger reloaded = new RunLedger(file);
+        assertEquals("f3", reloaded.lastSuccess("/a/Samples.map.rtc|x.map|0123"));
+        assertEquals("f2", reloaded.lastSuccess("/a/Samples.map.rtc|y.map|0123"));
+        assertEquals(1, file.getParentFile().list().length);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.SDKException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SourceValidatorTest
+{
+    private static final Charset LATIN_1 = StandardCharsets.ISO_8859_1;
+    private static final String HEADER = "Account No,First Name,Last Name,Company,Address,City,State,Zip,Payment,Balance\r\n";
+
+    private File dir;
+    private File rtcFile;
+    private File source;
+    private MacroSet macros;
+    private SourceValidator validator;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("validate").toFile();
+        rtcFile = new File(dir, "Samples.map.rtc");
+        source = new File(dir, "invoices_src.txt");
+        macros = MacroSet.of(Collections.singletonMap("samples", dir.getAbsolutePath()));
+        validator = new SourceValidator(2, 1024 * 1024, 100);
+        writeRuntimeConfig("0", "%22");
+    }
+
+    @After
+    public void tearDown() {
+        validator.shutdown();
+        delete(dir);
+    }
+
+    @Test
+    public void sampleSourceIsValid() throws Exception {
+        Files.copy(new File("src/main/data/invoices_src.txt").toPath(), source.toPath());
+        List<SourceValidator.Report> reports = validator.validate(rtcFile, macros);
+        assertEquals(1, reports.size());
+        assertTrue(reports.get(0).toString(), reports.get(0).isValid());
+        assertEquals(100, reports.get(0).getRecords());
+        validator.check(rtcFile, macros);
+    }
+
+    @Test
+    public void wrongFieldCountIsRejected() throws Exception {
+        writeSource(StandardCharsets.US_ASCII, record("10019", "TX"),
+                "\"10023\",\"Bruce\",\"Beecher\"\r\n");
+        SourceValidator.Report report = validator.validate(rtcFile, macros).get(0);
+        assertEquals(2, report.getRecords());
+        assertEquals(1, report.getViolationCount());
+        assertEquals(3, report.getViolations().get(0).getLine());
+        try {
+            validator.check(rtcFile, macros);
+            throw new AssertionError("expected an SDKException");
+        } catch (SDKException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("record has 3 fields, the schema defines 10"));
+        }
+    }
+
+    @Test
+    public void overlongFieldIsReported() throws Exception {
+        writeSource(StandardCharsets.US_ASCII, record("100190", "TX"));
+        SourceValidator.Report report = validator.validate(rtcFile, macros).get(0);
+        assertEquals(1, report.getViolationCount());
+        assertTrue(report.toString(), report.getViolations().get(0).getMessage().startsWith("field 'Account No' has 6 bytes"));
+    }
+
+    @Test
+    public void defaultCodePageCountsBytes() throws Exception {
+        // 0xA9 is a single byte character in the default code page, but
+        // would be taken for a UTF-8 continuation byte
+        writeSource(LATIN_1, record("10019", "T\u00a9"), record("10023", "\u00a9\u00a9X"));
+        SourceValidator.Report report = validator.validate(rtcFile, macros).get(0);
+        assertEquals(1, report.getViolationCount());
+        assertEquals(3, report.getViolations().get(0).getLine());
+    }
+
+    @Test
+    public void otherCodePagesCountCharacters() throws Exception {
+        writeRuntimeConfig("65001", "%22");
+        writeSource(StandardCharsets.UTF_8, record("10019", "\u00c9\u00c9"));
+        assertTrue(validator.validate(rtcFile, macros).get(0).isValid());
+    }
+
+    @Test
+    public void byte0xFFIsDataWhenThereIsNoDelimiter() throws Exception {
+        writeRuntimeConfig("0", "");
+        writeSource(LATIN_1, "10019,Bobbi,\u00ffrndt,Market Place,1000 S Nicolet Rd,Sametown,TX,99136-1221,100.00,218.00\r\n");
+        SourceValidator.Report report = validator.validate(rtcFile, macros).get(0);
+        assertTrue(report.toString(), report.isValid());
+        assertEquals(1, report.getRecords());
+    }
+
+    @Test
+    public void byte0xFFCanBeTheDelimiter() throws Exception {
+        writeRuntimeConfig("0", "%C3%BF");
+        writeSource(LATIN_1, record("10019", "TX").replace('"', '\u00ff').replace("Market Place", "Market, Place"));
+        SourceValidator.Report report = validator.validate(rtcFile, macros).get(0);
+        assertTrue(report.toString(), report.isValid());
+    }
+
+    @Test
+    public void resultIsCachedUntilTheSourceChanges() throws Exception {
+        writeSource(StandardCharsets.US_ASCII, record("10019", "TX"));
+        SourceValidator.Report first = validator.validate(rtcFile, macros).get(0);
+        // the runtime configuration isn't parsed again while its size and time are unchanged
+        long modified = rtcFile.lastModified();
+        byte[] garbage = new byte[(int)rtcFile.length()];
+        Files.write(rtcFile.toPath(), garbage);
+        rtcFile.setLastModified(modified);
+        assertSame(first, validator.validate(rtcFile, macros).get(0));
+
+        writeSource(StandardCharsets.US_ASCII, record("10019", "TX"), record("10023", "AK"));
+        SourceValidator.Report second = validator.validate(rtcFile, macros).get(0);
+        assertNotSame(first, second);
+        assertEquals(2, second.getRecords());
+    }
+
+    @Test
+    public void cacheIsBounded() throws Exception {
+        writeSource(StandardCharsets.US_ASCII, record("10019", "TX"));
+        SourceValidator.Report first = validator.validate(rtcFile, macros).get(0);
+        for (int i = 0; i < 300; i++) {
+            File other = new File(dir, "source" + i);
+            other.mkdir();
+            Files.copy(source.toPath(), new File(other, source.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            validator.validate(rtcFile, MacroSet.of(Collections.singletonMap("samples", other.getAbsolutePath())));
+        }
+        SourceValidator.Report again = validator.validate(rtcFile, macros).get(0);
+        assertNotSame(first, again);
+        assertTrue(again.isValid());
+    }
+
+    @Test
+    public void unsupportedDelimitersAreNotChecked() throws Exception {
+        writeRuntimeConfig("0", "%22%22");
+        writeSource(StandardCharsets.US_ASCII, "not,a,valid,record\r\n");
+        assertTrue(validator.validate(rtcFile, macros).isEmpty());
+        validator.check(rtcFile, macros);
+    }
+
+    @Test
+    public void recordSeparatorIsHonoured() throws Exception {
+        writeRuntimeConfig("0", "%22", "%1E");
+        // small chunks so that records are split at the separator, not at line breaks
+        validator.shutdown();
+        validator = new SourceValidator(2, 200, 100);
+        StringBuilder sb = new StringBuilder(HEADER.replace("\r\n", "\u001e"));
+        for (int i = 0; i < 20; i++) {
+            sb.append(record(i == 13 ? "100190" : "10019", "TX").replace("\r\n", "\u001e"));
+        }
+        Files.write(source.toPath(), sb.toString().getBytes(StandardCharsets.US_ASCII));
+        SourceValidator.Report report = validator.validate(rtcFile, macros).get(0);
+        assertEquals(20, report.getRecords());
+        assertEquals(1, report.getViolationCount());
+        assertEquals(15, report.getViolations().get(0).getLine());
+    }
+
+    @Test
+    public void unsupportedRecordSeparatorIsNotChecked() throws Exception {
+        writeRuntimeConfig("65001", "%22", "%C3%BF");
+        writeSource(StandardCharsets.US_ASCII, "not,a,valid,record\r\n");
+        assertTrue(validator.validate(rtcFile, macros).isEmpty());
+    }
+
+    private void writeRuntimeConfig(String codepage, String delimiter) throws IOException {
+        writeRuntimeConfig(codepage, delimiter, "%0D%0A");
+    }
+
+    private void writeRuntimeConfig(String codepage, String delimiter, String recordSeparator) throws IOException {
+        String text = new String(Files.readAllBytes(new File("src/main/artifacts/Samples.map.rtc").toPath()),
+                StandardCharsets.UTF_8);
+        // the source dataset's properties come first
+        text = text.replaceFirst("(\"name\": \"codepage\",\\s*\"value\": \")0\"",
+                "$1" + Matcher.quoteReplacement(codepage) + "\"");
+        text = text.replaceFirst("(\"name\": \"fldsdelim\",\\s*\"value\": \")%22\"",
+                "$1" + Matcher.quoteReplacement(delimiter) + "\"");
+        text = text.replaceFirst("(\"name\": \"fldedelim\",\\s*\"value\": \")%22\"",
+                "$1" + Matcher.quoteReplacement(delimiter) + "\"");
+        text = text.replaceFirst("(\"name\": \"recsep\",\\s*\"value\": \")%0D%0A\"",
+                "$1" + Matcher.quoteReplacement(recordSeparator) + "\"");
+        Files.write(rtcFile.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeSource(Charset charset, String... records) throws IOException {
+        StringBuilder sb = new StringBuilder(HEADER);
+        for (String record : records) {
+            sb.append(record);
+        }
+        Files.write(source.toPath(), sb.toString().getBytes(charset));
+    }
+
+    private static String record(String account, String state) {
+        return "\"" + account + "\",\"Bobbi\",\"Arndt\",\"Market Place\",\"1000 S Nicolet Rd\",\"Sametown\",\""
+                + state + "\",\"99136-1221\",\"100.00\",\"218.00\"\r\n";
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
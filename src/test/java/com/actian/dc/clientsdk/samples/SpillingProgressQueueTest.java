@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.JobEventName;
+import com.pervasive.di.client.sdk.JobStatusCode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpillingProgressQueueTest
+{
+    // a spilled record is a 4 byte length, 2 bytes of codes and the job id
+    private static final int RECORD_BYTES = 4 + 2 + "job-00".length();
+
+    private File dir;
+    private SpillingProgressQueue queue;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("progress").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (queue != null)
+            queue.close();
+        dir.delete();
+    }
+
+    @Test
+    public void eventsBeyondCapacitySpillAndDrainInOrder() throws Exception {
+        queue = new SpillingProgressQueue(2, 4096, dir);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.add(running(i)));
+        }
+        assertEquals(10, queue.size());
+        assertEquals(8, queue.getSpilled());
+        for (int i = 0; i < 10; i++) {
+            SpillingProgressQueue.Event event = queue.poll(1, TimeUnit.SECONDS);
+            assertEquals(jobId(i), event.getJobId());
+            assertNull(event.getEventName());
+            assertEquals(JobStatusCode.RUNNING, event.getJobStatusCode());
+        }
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void heapIsNotRefilledWhileEventsAreSpilled() throws Exception {
+        queue = new SpillingProgressQueue(2, 4096, dir);
+        queue.add(running(0));
+        queue.add(running(1));
+        queue.add(running(2));
+        assertEquals(jobId(0), queue.poll(1, TimeUnit.SECONDS).getJobId());
+        // the heap has room again, but event 3 must stay behind the spilled event 2
+        queue.add(running(3));
+        assertEquals(2, queue.getSpilled());
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(jobId(i), queue.poll(1, TimeUnit.SECONDS).getJobId());
+        }
+        // with the spill drained, the heap is used again
+        queue.add(running(4));
+        assertEquals(2, queue.getSpilled());
+    }
+
+    @Test
+    public void spillRingWrapsWithAndWithoutRoomForAMarker() throws Exception {
+        // 5 records fit in each segment; the first leaves room for a wrap
+        // marker after the last record, the second doesn't
+        for (int spillBytes : new int[]{5 * RECORD_BYTES + 4, 5 * RECORD_BYTES + 2}) {
+            if (queue != null)
+                queue.close();
+            queue = new SpillingProgressQueue(1, spillBytes, dir);
+            assertTrue(queue.add(running(0)));
+            int next = 1;
+            int expected = 0;
+            for (int round = 0; round < 20; round++) {
+                while (queue.size() < 4) {
+                    assertTrue(queue.add(running(next++ % 100)));
+                }
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(jobId(expected++ % 100), queue.poll(1, TimeUnit.SECONDS).getJobId());
+                }
+            }
+            while (queue.size() > 0) {
+                assertEquals(jobId(expected++ % 100), queue.poll(1, TimeUnit.SECONDS).getJobId());
+            }
+            assertEquals(next, expected);
+            assertEquals(0, queue.getDropped());
+        }
+    }
+
+    @Test
+    public void fullSpillKeepsEndedEventsAndDropsTheRest() throws Exception {
+        queue = new SpillingProgressQueue(1, 2 * RECORD_BYTES, dir);
+        assertTrue(queue.add(running(0)));
+        assertTrue(queue.add(running(1)));
+        assertTrue(queue.add(running(2)));
+        assertFalse(queue.add(running(3)));
+        assertTrue(queue.add(ended(4)));
+        // once an ended event has overflowed, later events queue behind it
+        assertFalse(queue.add(running(5)));
+        assertTrue(queue.add(ended(6)));
+        assertEquals(2, queue.getDropped());
+
+        int[] order = {0, 1, 2, 4, 6};
+        for (int i : order) {
+            assertEquals(jobId(i), queue.poll(1, TimeUnit.SECONDS).getJobId());
+        }
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void endedEventRoundTripsThroughTheSpill() throws Exception {
+        queue = new SpillingProgressQueue(0, 4096, dir);
+        queue.add(ended(7));
+        SpillingProgressQueue.Event event = queue.poll(1, TimeUnit.SECONDS);
+        assertEquals(jobId(7), event.getJobId());
+        assertEquals(JobEventName.JOB_ENDED, event.getEventName());
+        assertEquals(JobStatusCode.FINISHED_OK, event.getJobStatusCode());
+        assertEquals(1, queue.getSpilled());
+    }
+
+    @Test
+    public void pollTimesOutWhenEmpty() throws Exception {
+        queue = new SpillingProgressQueue(2, 4096, dir);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void closeRemovesTheSpillFile() throws Exception {
+        queue = new SpillingProgressQueue(2, 4096, dir);
+        assertEquals(1, dir.listFiles().length);
+        queue.close();
+        queue = null;
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    private static String jobId(int i) {
+        return String.format("job-%02d", i);
+    }
+
+    private static SpillingProgressQueue.Event running(int i) {
+        return new SpillingProgressQueue.Event(jobId(i), null, JobStatusCode.RUNNING);
+    }
+
+    private static SpillingProgressQueue.Event ended(int i) {
+        return new SpillingProgressQueue.Event(jobId(i), JobEventName.JOB_ENDED, JobStatusCode.FINISHED_OK);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.SDKException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskBuilderTest
+{
+    @Test
+    public void strictModeRejectsUndefinedMacros() throws IOException {
+        File rtc = File.createTempFile("strict", ".rtc");
+        rtc.deleteOnExit();
+        Files.write(rtc.toPath(), "{\"source\":\"$(missing)/a.txt\"}".getBytes(StandardCharsets.UTF_8));
+        TaskBuilder builder = new TaskBuilder("Samples", "1.0", Collections.singletonMap("samples", "/data"));
+        builder.setStrictMacros(true);
+        try {
+            builder.buildTask(rtc);
+            fail("undefined macro accepted");
+        } catch (SDKException e) {
+            assertTrue(e.getMessage().contains("missing"));
+        }
+    }
+
+    @Test(expected = SDKException.class)
+    public void unreadableRuntimeConfigurationIsAnSDKException() throws SDKException {
+        new TaskBuilder("Samples", "1.0", Collections.emptyMap()).buildTask(new File("no-such-dir/none.rtc"));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Task;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TaskGraphTest
+{
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateIdIsRejected() {
+        new TaskGraph().add("a", new Task()).add("a", new Task());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dependencyMustBeAddedFirst() {
+        new TaskGraph().add("b", new Task(), "a");
+    }
+
+    @Test
+    public void downstreamIsTransitive() {
+        TaskGraph graph = new TaskGraph()
+                .add("a", new Task())
+                .add("b", new Task(), "a")
+                .add("c", new Task(), "b")
+                .add("d", new Task(), "a", "c")
+                .add("e", new Task());
+        assertEquals(new HashSet<>(Arrays.asList("b", "c", "d")), new HashSet<>(graph.downstreamOf("a")));
+        assertEquals(Collections.singletonList("d"), graph.downstreamOf("c"));
+        assertEquals(Collections.emptyList(), graph.downstreamOf("e"));
+        assertEquals(5, graph.size());
+    }
+}
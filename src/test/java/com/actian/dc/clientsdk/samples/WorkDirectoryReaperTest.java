@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkDirectoryReaperTest
+{
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private File root;
+    private WorkDirectoryReaper reaper;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("reaper-test").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (reaper != null)
+            reaper.shutdown();
+        try (Stream<Path> paths = Files.walk(root.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private File directory(String name, int bytes) throws IOException {
+        File dir = new File(root, name);
+        dir.mkdirs();
+        Files.write(new File(dir, "data").toPath(), new byte[bytes]);
+        return dir;
+    }
+
+    @Test
+    public void expiredFinishedDirectoryIsRemoved() throws IOException {
+        reaper = new WorkDirectoryReaper(0, 0, HOUR);
+        File dir = reaper.createActive(root);
+        reaper.markFinished(dir);
+        reaper.sweep();
+        assertFalse(dir.exists());
+    }
+
+    @Test
+    public void activeDirectoryIsKept() throws IOException {
+        reaper = new WorkDirectoryReaper(0, 0, HOUR);
+        File dir = reaper.createActive(root);
+        reaper.sweep();
+        assertTrue(dir.isDirectory());
+    }
+
+    @Test
+    public void recentFinishedDirectoryIsKept() throws IOException {
+        reaper = new WorkDirectoryReaper(HOUR, 0, HOUR);
+        File dir = reaper.createActive(root);
+        reaper.markFinished(dir);
+        reaper.sweep();
+        assertTrue(dir.isDirectory());
+    }
+
+    @Test
+    public void leftoversOfEarlierRunsAreReaped() throws IOException {
+        File leftover = directory(WorkDirectoryReaper.CONNECTION_DIR_PREFIX + "1", 10);
+        File other = directory("keep", 10);
+        reaper = new WorkDirectoryReaper(0, 0, HOUR);
+        reaper.addRoot(root);
+        reaper.sweep();
+        assertFalse(leftover.exists());
+        assertTrue(other.isDirectory());
+    }
+
+    @Test
+    public void newDirectoryNeverReusesALeftover() throws IOException {
+        File leftover = directory(WorkDirectoryReaper.CONNECTION_DIR_PREFIX + "1", 10);
+        reaper = new WorkDirectoryReaper(0, 0, HOUR);
+        reaper.addRoot(root);
+        for (int i = 0; i < 10; i++) {
+            File dir = reaper.createActive(root);
+            assertNotEquals(leftover, dir);
+            assertTrue(dir.getName().startsWith(WorkDirectoryReaper.CONNECTION_DIR_PREFIX));
+            assertEquals(0, dir.list().length);
+        }
+        reaper.sweep();
+        assertFalse(leftover.exists());
+        assertEquals(10, root.list().length);
+    }
+
+    @Test
+    public void quotaRemovesOldestFirst() throws IOException {
+        File oldest = directory(WorkDirectoryReaper.CONNECTION_DIR_PREFIX + "a", 1000);
+        File middle = directory(WorkDirectoryReaper.CONNECTION_DIR_PREFIX + "b", 1000);
+        File newest = directory(WorkDirectoryReaper.CONNECTION_DIR_PREFIX + "c", 1000);
+        long now = System.currentTimeMillis();
+        oldest.setLastModified(now - 3000);
+        middle.setLastModified(now - 2000);
+        newest.setLastModified(now - 1000);
+        reaper = new WorkDirectoryReaper(HOUR, 2000, HOUR);
+        reaper.addRoot(root);
+        reaper.sweep();
+        assertFalse(oldest.exists());
+        assertTrue(middle.isDirectory());
+        assertTrue(newest.isDirectory());
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkloadClassTest
+{
+    @Test
+    public void v9ArtifactsAreClassifiedByXmlExtension() {
+        assertEquals(WorkloadClass.V9, WorkloadClass.of("V9Samples-1.0/m_SimpleMap.tf.xml"));
+        assertEquals(WorkloadClass.V9, WorkloadClass.of("/opt/artifacts/m_SimpleMap.TF.XML"));
+        assertEquals(WorkloadClass.V9, WorkloadClass.of("V9Samples-1.0/load.ps.xml"));
+    }
+
+    @Test
+    public void packagedProcessesAreClassifiedByExtension() {
+        assertEquals(WorkloadClass.PROCESS, WorkloadClass.of("Samples-1.0/process_map_invoices_ascii_to_ascii_p.process"));
+        assertEquals(WorkloadClass.PROCESS, WorkloadClass.of("Samples-1.0/Nightly.PROCESS"));
+    }
+
+    @Test
+    public void mapsAndUnknownEntryPointsAreMaps() {
+        assertEquals(WorkloadClass.MAP, WorkloadClass.of("Samples-1.0/map_invoices_ascii_to_ascii_m.map"));
+        assertEquals(WorkloadClass.MAP, WorkloadClass.of("Samples-1.0/readme.txt"));
+        assertEquals(WorkloadClass.MAP, WorkloadClass.of((String)null));
+    }
+
+    @Test
+    public void configKeysAreLowerCase() {
+        assertEquals("v9", WorkloadClass.V9.getConfigKey());
+        assertEquals("map", WorkloadClass.MAP.getConfigKey());
+        assertEquals("process", WorkloadClass.PROCESS.getConfigKey());
+    }
+}
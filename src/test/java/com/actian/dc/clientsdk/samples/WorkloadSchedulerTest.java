@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Actian Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.clientsdk.samples;
+
+import com.pervasive.di.client.sdk.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkloadSchedulerTest
+{
+    private static final String MAP = "Samples-1.0/map_invoices_ascii_to_ascii_m.map";
+    private static final String PROCESS = "Samples-1.0/process_map_invoices_ascii_to_ascii_p.process";
+
+    @Test
+    public void sharedTargetGroupRunsOneJobAtATime() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        WorkloadScheduler scheduler = new WorkloadScheduler(config(4),
+                Collections.singleton(EnumSet.of(WorkloadClass.MAP, WorkloadClass.PROCESS)), task -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                    return null;
+                });
+        try {
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(scheduler.submit(task(MAP)));
+                futures.add(scheduler.submit(task(PROCESS)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+            assertEquals(1, maxRunning.get());
+            assertEquals(10, scheduler.getLatency(WorkloadClass.MAP).getCount());
+            assertEquals(10, scheduler.getLatency(WorkloadClass.PROCESS).getCount());
+        }
+        finally {
+            scheduler.shutdown(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void lanesOutsideTheGroupRunAlongsideIt() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        WorkloadScheduler scheduler = new WorkloadScheduler(config(2),
+                Collections.singleton(EnumSet.of(WorkloadClass.MAP, WorkloadClass.PROCESS)), task -> {
+                    bothRunning.countDown();
+                    if (!bothRunning.await(10, TimeUnit.SECONDS))
+                        throw new IllegalStateException("V9 and map jobs did not run together");
+                    return null;
+                });
+        try {
+            CompletableFuture<?> v9 = scheduler.submit(task("V9Samples-1.0/m_SimpleMap.tf.xml"));
+            CompletableFuture<?> map = scheduler.submit(task(MAP));
+            CompletableFuture.allOf(v9, map).get(10, TimeUnit.SECONDS);
+        }
+        finally {
+            scheduler.shutdown(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void classMayOnlyBeInOneGroup() {
+        new WorkloadScheduler(config(2), Arrays.asList(EnumSet.of(WorkloadClass.MAP, WorkloadClass.PROCESS),
+                EnumSet.of(WorkloadClass.V9, WorkloadClass.MAP)), task -> null);
+    }
+
+    private static SamplesConfig config(int concurrency) {
+        Properties props = new Properties();
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            props.setProperty("workload." + workload.getConfigKey() + ".concurrency", Integer.toString(concurrency));
+        }
+        return new SamplesConfig(props);
+    }
+
+    private static Task task(String entryPoint) {
+        Task task = new Task();
+        task.setEntryPoint(entryPoint);
+        return task;
+    }
+}